@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the JMH main class does, but writes the results as JSON to
+ * <code>{@value #DEFAULT_RESULT_FILE}</code> unless a result format or file is given on the command
+ * line. JSON results of different runs can be compared, for example with the JMH visualizers.
+ */
+public final class BenchmarkRunner {
+  private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  private BenchmarkRunner() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    OptionsBuilder optionsBuilder = new OptionsBuilder();
+    if (commandLineOptions.getResultFormat().hasValue() == false) {
+      optionsBuilder.resultFormat(ResultFormatType.JSON);
+    }
+    if (commandLineOptions.getResult().hasValue() == false) {
+      optionsBuilder.result(DEFAULT_RESULT_FILE);
+    }
+    Options options = optionsBuilder.parent(commandLineOptions).build();
+    new Runner(options).run();
+  }
+}
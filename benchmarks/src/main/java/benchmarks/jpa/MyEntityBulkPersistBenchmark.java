@@ -0,0 +1,106 @@
+package benchmarks.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.myproject.MyEntity;
+import org.myproject.MyEntityRepository;
+import org.myproject.persistence.ModelSessionCustomizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the insert throughput of plain persisting against {@link MyEntityRepository#persistAll}
+ * with JDBC batch writing and a large sequence preallocation size. Every invocation persists
+ * {@value #ENTITY_COUNT} entities in one transaction, the score is per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MyEntityBulkPersistBenchmark {
+  private static final String PERSISTENCE_UNIT_NAME = "benchmarkPU";
+  private static final int ENTITY_COUNT = 2000;
+  private static final int PAYLOAD_SIZE = 1024;
+
+  @Param({"plain", "bulk"})
+  private String variant;
+
+  private EntityManagerFactory entityManagerFactory;
+  private int chunkSize;
+  private List<MyEntity> myEntities;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    boolean bulk = "bulk".equals(variant);
+    chunkSize = bulk ? 1000 : Integer.MAX_VALUE;
+
+    // Every variant gets its own database, the sequence increment is fixed when it is created
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:bulk-" + variant);
+    properties.put("eclipselink.session-name", "bulk-" + variant);
+    properties.put("eclipselink.jdbc.batch-writing", bulk ? "JDBC" : "None");
+    properties.put(ModelSessionCustomizer.SEQUENCE_PREALLOCATION_SIZE, bulk ? 500 : 1);
+    entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties);
+  }
+
+  @Setup(Level.Invocation)
+  public void createEntities() {
+    myEntities = new ArrayList<>(ENTITY_COUNT);
+    for (int i = 0; i < ENTITY_COUNT; i++) {
+      myEntities.add(new MyEntity(new byte[PAYLOAD_SIZE]));
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void deletePersistedEntities() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.createQuery("DELETE FROM MyEntity e").executeUpdate();
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ENTITY_COUNT)
+  public int persistAll() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      int count = new MyEntityRepository(entityManager).persistAll(myEntities, chunkSize);
+      entityManager.getTransaction().commit();
+      return count;
+    } finally {
+      entityManager.close();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package benchmarks.jpa;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.myproject.MyEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures persisting, finding and merging a {@link MyEntity} in its own transaction against an
+ * in-memory H2 database, for payloads of different sizes. The payloads are random, so they do not
+ * compress. Finding evicts the entity from the shared cache first, so it is read from the database,
+ * and merging replaces the payload, so every merge updates the row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MyEntityPersistenceBenchmark {
+  private static final String PERSISTENCE_UNIT_NAME = "benchmarkPU";
+
+  @Param({"256", "4096", "32768"})
+  private int payloadSize;
+
+  private EntityManagerFactory entityManagerFactory;
+  private byte[] payload;
+  private byte[] otherPayload;
+  private MyEntity detachedMyEntity;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME);
+    payload = new byte[payloadSize];
+    otherPayload = new byte[payloadSize];
+    Random random = new Random(payloadSize);
+    random.nextBytes(payload);
+    random.nextBytes(otherPayload);
+    detachedMyEntity = persist();
+  }
+
+  @TearDown(Level.Iteration)
+  public void deletePersistedEntities() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.createQuery("DELETE FROM MyEntity e WHERE e.id <> :id")
+          .setParameter("id", detachedMyEntity.getId()).executeUpdate();
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Benchmark
+  public MyEntity persist() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      MyEntity myEntity = new MyEntity(payload);
+      entityManager.persist(myEntity);
+      entityManager.getTransaction().commit();
+      return myEntity;
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @Benchmark
+  public byte[] find() {
+    entityManagerFactory.getCache().evict(MyEntity.class, detachedMyEntity.getId());
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.find(MyEntity.class, detachedMyEntity.getId()).getBytes();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @Benchmark
+  public MyEntity merge() {
+    detachedMyEntity.setBytes(detachedMyEntity.getBytes() == payload ? otherPayload : payload);
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      MyEntity myEntity = entityManager.merge(detachedMyEntity);
+      entityManager.getTransaction().commit();
+      return myEntity;
+    } finally {
+      entityManager.close();
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package benchmarks.reflect;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myproject.MyEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.reflect.ReflectionTestUtils;
+
+/**
+ * Measures {@link ReflectionTestUtils#setField(Object, Class, Object)} as used by test fixtures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionTestUtilsBenchmark {
+  private final MyEntity myEntity = new MyEntity();
+  private final byte[] bytes = new byte[16];
+
+  @Benchmark
+  public MyEntity setField() {
+    ReflectionTestUtils.setField(myEntity, byte[].class, bytes);
+    return myEntity;
+  }
+}
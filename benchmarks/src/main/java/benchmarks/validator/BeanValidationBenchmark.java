@@ -0,0 +1,56 @@
+package benchmarks.validator;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.myproject.MyEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.reflect.ReflectionTestUtils;
+
+/**
+ * Measures validating a valid and an invalid {@link MyEntity} the way
+ * <code>test.matchers.more.ValidatorMatcher</code> does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanValidationBenchmark {
+  private Validator validator;
+  private MyEntity validMyEntity;
+  private MyEntity invalidMyEntity;
+
+  @Setup
+  public void setUp() {
+    validator = Validation.buildDefaultValidatorFactory().getValidator();
+    validMyEntity = new MyEntity(new byte[1024]);
+    invalidMyEntity = new MyEntity();
+    ReflectionTestUtils.setField(invalidMyEntity, byte[].class, null);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<MyEntity>> validateValid() {
+    return validator.validate(validMyEntity);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<MyEntity>> validateInvalid() {
+    return validator.validate(invalidMyEntity);
+  }
+}
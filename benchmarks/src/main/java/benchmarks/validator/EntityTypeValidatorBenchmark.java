@@ -0,0 +1,36 @@
+package benchmarks.validator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.myproject.MyEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import test.validator.EntityTypeValidator;
+import test.validator.RuleViolation;
+
+/**
+ * Measures {@link EntityTypeValidator#validate(Class)} as used by the <code>validEntityType</code>
+ * matcher, including creating the validator like the matcher does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityTypeValidatorBenchmark {
+
+  @Benchmark
+  public List<RuleViolation> validate() {
+    return new EntityTypeValidator().validate(MyEntity.class);
+  }
+}
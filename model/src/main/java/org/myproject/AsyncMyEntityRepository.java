@@ -0,0 +1,236 @@
+package org.myproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.jpa.JpaHelper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs {@link MyEntity} operations asynchronously, each in its own entity manager and
+ * transaction. Operations run on virtual threads if the runtime provides them, otherwise on as many
+ * platform threads as operations may run concurrently.
+ * <p>
+ * At most as many operations run concurrently as the default connection pool of the persistence
+ * unit has connections, so waiting for a connection never happens inside the pool. Operations
+ * beyond that wait for a permit, up to <code>maxPending</code> of them. Further operations are
+ * rejected right away with a future that completes exceptionally with a
+ * {@link RejectedExecutionException}, which lets callers shed load instead of queueing without
+ * bound.
+ * </p>
+ * <p>
+ * Returned entities are detached and include their payloads.
+ * </p>
+ */
+public class AsyncMyEntityRepository implements AutoCloseable {
+  private final EntityManagerFactory entityManagerFactory;
+  private final Semaphore connections;
+  private final Semaphore pending;
+  private final int maxPending;
+  private final ExecutorService executor;
+
+  /**
+   * Creates a repository that lets as many operations wait as can run concurrently.
+   */
+  public AsyncMyEntityRepository(EntityManagerFactory entityManagerFactory) {
+    this(entityManagerFactory, maxConnectionsOf(entityManagerFactory),
+        maxConnectionsOf(entityManagerFactory));
+  }
+
+  public AsyncMyEntityRepository(EntityManagerFactory entityManagerFactory, int maxConcurrency,
+      int maxPending) {
+    checkArgument(maxConcurrency > 0, "maxConcurrency should be positive but was [%s]",
+        maxConcurrency);
+    checkArgument(maxPending >= 0, "maxPending should not be negative but was [%s]", maxPending);
+
+    this.entityManagerFactory = checkNotNull(entityManagerFactory);
+    this.connections = new Semaphore(maxConcurrency);
+    this.pending = new Semaphore(maxConcurrency + maxPending);
+    this.maxPending = maxPending;
+    this.executor = newExecutor(maxConcurrency);
+  }
+
+  /**
+   * Persists a new entity or merges a detached one, and returns the saved entity.
+   */
+  public CompletableFuture<MyEntity> save(MyEntity myEntity) {
+    checkNotNull(myEntity);
+
+    return execute(entityManager -> save(entityManager, myEntity));
+  }
+
+  public CompletableFuture<List<MyEntity>> saveAll(Collection<MyEntity> myEntities) {
+    checkNotNull(myEntities);
+
+    List<MyEntity> toSave = new ArrayList<>(myEntities);
+    return execute(entityManager -> {
+      List<MyEntity> saved = new ArrayList<>(toSave.size());
+      for (MyEntity myEntity : toSave) {
+        saved.add(save(entityManager, myEntity));
+      }
+      return saved;
+    });
+  }
+
+  public CompletableFuture<Optional<MyEntity>> find(long id) {
+    return execute(entityManager -> {
+      List<MyEntity> found = findAll(entityManager, Collections.singletonList(id));
+      return found.isEmpty() ? Optional.<MyEntity>empty() : Optional.of(found.get(0));
+    });
+  }
+
+  /**
+   * Returns the entities with the given ids in ascending order of their ids, ids of entities that
+   * do not exist are skipped.
+   */
+  public CompletableFuture<List<MyEntity>> findAll(Collection<Long> ids) {
+    checkNotNull(ids);
+
+    List<Long> toFind = new ArrayList<>(ids);
+    return execute(entityManager -> findAll(entityManager, toFind));
+  }
+
+  /**
+   * Deletes the entity with the given id and returns whether it existed.
+   */
+  public CompletableFuture<Boolean> delete(long id) {
+    return execute(entityManager -> deleteAll(entityManager, Collections.singletonList(id)) > 0);
+  }
+
+  /**
+   * Deletes the entities with the given ids and returns the number of deleted entities.
+   */
+  public CompletableFuture<Integer> deleteAll(Collection<Long> ids) {
+    checkNotNull(ids);
+
+    List<Long> toDelete = new ArrayList<>(ids);
+    return execute(entityManager -> deleteAll(entityManager, toDelete));
+  }
+
+  /**
+   * Returns the number of operations that wait for a connection permit.
+   */
+  public int getPendingCount() {
+    return Math.max(maxPending - pending.availablePermits() + connections.availablePermits(), 0);
+  }
+
+  /**
+   * Rejects new operations and waits for the running and pending ones to complete. The entity
+   * manager factory is not closed.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs the given work in a transaction of its own entity manager, which is committed if the work
+   * completes normally and rolled back otherwise.
+   */
+  <T> CompletableFuture<T> execute(Function<EntityManager, T> work) {
+    if (pending.tryAcquire() == false) {
+      return failed(new RejectedExecutionException(String.format(
+          "More than [%s] operations are pending.", maxPending)));
+    }
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          connections.acquireUninterruptibly();
+          try {
+            return Transactions.inTransaction(entityManagerFactory, work);
+          } finally {
+            connections.release();
+          }
+        } finally {
+          pending.release();
+        }
+      }, executor);
+    } catch (RejectedExecutionException e) {
+      pending.release();
+      return failed(e);
+    }
+  }
+
+  private static MyEntity save(EntityManager entityManager, MyEntity myEntity) {
+    if (myEntity.getId() == null) {
+      entityManager.persist(myEntity);
+      return myEntity;
+    }
+    return entityManager.merge(myEntity);
+  }
+
+  private static List<MyEntity> findAll(EntityManager entityManager, List<Long> ids) {
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return entityManager
+        .createQuery("SELECT e FROM MyEntity e WHERE e.id IN :ids ORDER BY e.id", MyEntity.class)
+        .setParameter("ids", ids)
+        // Fetches the lazy payload along, it can not be fetched once the entities are detached
+        .setHint(QueryHints.FETCH_GROUP_DEFAULT, HintValues.FALSE)
+        .getResultList();
+  }
+
+  private static int deleteAll(EntityManager entityManager, List<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    int deleted = entityManager.createQuery("DELETE FROM MyEntity e WHERE e.id IN :ids")
+        .setParameter("ids", ids)
+        .executeUpdate();
+    Cache cache = entityManager.getEntityManagerFactory().getCache();
+    for (Long id : ids) {
+      cache.evict(MyEntity.class, id);
+    }
+    return deleted;
+  }
+
+  private static int maxConnectionsOf(EntityManagerFactory entityManagerFactory) {
+    checkNotNull(entityManagerFactory);
+
+    return JpaHelper.getServerSession(entityManagerFactory).getDefaultConnectionPool()
+        .getMaxNumberOfConnections();
+  }
+
+  private static ExecutorService newExecutor(int maxConcurrency) {
+    try {
+      // Available from Java 21, this project still compiles for Java 8
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+        Thread thread = new Thread(runnable,
+            "async-my-entity-repository-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable throwable) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(throwable);
+    return future;
+  }
+}
@@ -0,0 +1,91 @@
+package org.myproject;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks on an executor with at most a given number of them submitted and not done, for the
+ * stores of this package that write in parallel while they read their input. Instances are used by
+ * the thread that submits the tasks only.
+ */
+final class BoundedTasks {
+  private final Executor executor;
+  private final Semaphore inFlight;
+  private final String description;
+  private final AtomicBoolean failed = new AtomicBoolean();
+  private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+  /**
+   * @param description what a task does, for the message of an interrupted submission
+   */
+  BoundedTasks(Executor executor, int parallelism, String description) {
+    this.executor = executor;
+    this.inFlight = new Semaphore(parallelism);
+    this.description = description;
+  }
+
+  /**
+   * Returns whether a task has failed, the caller should stop submitting tasks then since the work
+   * has to be repeated anyway.
+   */
+  boolean hasFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Submits a task once fewer than the given number of tasks are in flight.
+   */
+  void submit(Runnable task) throws InterruptedIOException {
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          String.format("Interrupted while waiting to %s.", description));
+    }
+    CompletableFuture<Void> future;
+    try {
+      future = CompletableFuture.runAsync(task, executor);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+    tasks.add(future.whenComplete((result, throwable) -> {
+      if (throwable != null) {
+        failed.set(true);
+      }
+      inFlight.release();
+    }));
+  }
+
+  /**
+   * Waits for all submitted tasks and throws the exception of a failed one.
+   */
+  void awaitAll() {
+    try {
+      CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for all submitted tasks without throwing their exceptions, before the caller throws an
+   * exception of its own. Leaves no tasks running behind the back of the caller, who may repeat the
+   * work.
+   */
+  void awaitAllQuietly() {
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+        .handle((result, throwable) -> null)
+        .join();
+  }
+}
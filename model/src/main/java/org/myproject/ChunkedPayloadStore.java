@@ -0,0 +1,225 @@
+package org.myproject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores payloads of any size as rows of {@link PayloadChunk}s, as an alternative to the single
+ * column of {@link MyEntity}, which is limited in size and always read as a whole.
+ * <p>
+ * Every chunk but the last one of a payload holds exactly <code>chunkSize</code> bytes, so a range
+ * of a payload is read from the chunks that overlap it only. Every chunk is written in a
+ * transaction of its own, which lets an upload write its chunks in parallel and lets an interrupted
+ * upload be resumed by writing the missing chunks only. A payload whose chunks are not all written
+ * yet is incomplete, which ranges that touch a missing chunk report.
+ * </p>
+ * <p>
+ * The chunk size must be the same whenever the chunks of a payload are written and read. The owner
+ * of a payload has to be stored before its chunks are written, deleting the owner deletes them.
+ * </p>
+ */
+public class ChunkedPayloadStore {
+  public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final int chunkSize;
+
+  public ChunkedPayloadStore(EntityManagerFactory entityManagerFactory) {
+    this(entityManagerFactory, DEFAULT_CHUNK_SIZE);
+  }
+
+  public ChunkedPayloadStore(EntityManagerFactory entityManagerFactory, int chunkSize) {
+    checkArgument(chunkSize > 0, "chunkSize should be positive but was [%s]", chunkSize);
+
+    this.entityManagerFactory = checkNotNull(entityManagerFactory);
+    this.chunkSize = chunkSize;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Writes the chunks of a payload of <code>length</code> bytes that are missing, reading the
+   * payload from the given input stream. The chunks are written on the given executor, with at most
+   * <code>parallelism</code> chunks in memory at a time. Chunks that are already stored are
+   * skipped in the stream, so an upload that failed can be resumed by uploading the same payload
+   * again. If reading the stream fails, the chunks read before are written before the exception is
+   * thrown.
+   *
+   * @throws IllegalArgumentException if the owner does not exist
+   */
+  public void upload(long ownerId, InputStream inputStream, long length, Executor executor,
+      int parallelism) throws IOException {
+    checkNotNull(inputStream);
+    checkNotNull(executor);
+    checkArgument(parallelism > 0, "parallelism should be positive but was [%s]", parallelism);
+    checkArgument(ownerExists(ownerId), "owner [%s] does not exist", ownerId);
+
+    Set<Integer> missingChunks = new HashSet<>(findMissingChunks(ownerId, length));
+    BoundedTasks writes = new BoundedTasks(executor, parallelism, "write a chunk");
+    int chunkCount = chunkCountOf(length);
+    try {
+      // Stops reading once a write failed, the upload has to be resumed anyway
+      for (int chunkIndex = 0; chunkIndex < chunkCount && writes.hasFailed() == false;
+          chunkIndex++) {
+        int chunkLength = (int) Math.min(chunkSize, length - (long) chunkIndex * chunkSize);
+        if (missingChunks.contains(chunkIndex) == false) {
+          ByteStreams.skipFully(inputStream, chunkLength);
+          continue;
+        }
+        byte[] bytes = new byte[chunkLength];
+        ByteStreams.readFully(inputStream, bytes);
+        int index = chunkIndex;
+        writes.submit(() -> writeChunk(ownerId, index, bytes));
+      }
+    } catch (IOException | RuntimeException e) {
+      writes.awaitAllQuietly();
+      throw e;
+    }
+    writes.awaitAll();
+  }
+
+  /**
+   * Writes one chunk of a payload, replacing the chunk with the same index if there is one.
+   */
+  public void writeChunk(long ownerId, int chunkIndex, byte[] bytes) {
+    checkNotNull(bytes);
+    checkArgument(bytes.length > 0 && bytes.length <= chunkSize,
+        "chunk should hold between 1 and [%s] bytes but held [%s]", chunkSize, bytes.length);
+
+    Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      entityManager.createQuery(
+          "DELETE FROM PayloadChunk c WHERE c.ownerId = :ownerId AND c.chunkIndex = :chunkIndex")
+          .setParameter("ownerId", ownerId)
+          .setParameter("chunkIndex", chunkIndex)
+          .executeUpdate();
+      entityManager.persist(new PayloadChunk(ownerId, chunkIndex, bytes));
+      return null;
+    });
+  }
+
+  /**
+   * Returns the indexes of the chunks that are still missing to store a payload of
+   * <code>length</code> bytes, in ascending order.
+   */
+  public List<Integer> findMissingChunks(long ownerId, long length) {
+    checkArgument(length >= 0, "length should not be negative but was [%s]", length);
+
+    Set<Integer> storedChunks = new HashSet<>(Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT c.chunkIndex FROM PayloadChunk c WHERE c.ownerId = :ownerId",
+                Integer.class)
+            .setParameter("ownerId", ownerId)
+            .getResultList()));
+    List<Integer> missingChunks = new ArrayList<>();
+    for (int chunkIndex = 0; chunkIndex < chunkCountOf(length); chunkIndex++) {
+      if (storedChunks.contains(chunkIndex) == false) {
+        missingChunks.add(chunkIndex);
+      }
+    }
+    return missingChunks;
+  }
+
+  /**
+   * Returns the number of bytes stored for a payload, without reading its chunks.
+   */
+  public long length(long ownerId) {
+    Long length = Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT SUM(c.chunkLength) FROM PayloadChunk c WHERE c.ownerId = :ownerId",
+                Long.class)
+            .setParameter("ownerId", ownerId)
+            .getSingleResult());
+    return length == null ? 0 : length;
+  }
+
+  /**
+   * Reads <code>length</code> bytes of a payload starting at <code>offset</code>, reading only the
+   * chunks that overlap the range.
+   *
+   * @throws IllegalStateException if a chunk in the range is missing
+   */
+  public byte[] readRange(long ownerId, long offset, int length) {
+    checkArgument(offset >= 0, "offset should not be negative but was [%s]", offset);
+    checkArgument(length >= 0, "length should not be negative but was [%s]", length);
+
+    byte[] range = new byte[length];
+    if (length == 0) {
+      return range;
+    }
+    int firstChunk = (int) (offset / chunkSize);
+    int lastChunk = (int) ((offset + length - 1) / chunkSize);
+    List<PayloadChunk> chunks = Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT c FROM PayloadChunk c WHERE c.ownerId = :ownerId"
+                + " AND c.chunkIndex BETWEEN :firstChunk AND :lastChunk ORDER BY c.chunkIndex",
+                PayloadChunk.class)
+            .setParameter("ownerId", ownerId)
+            .setParameter("firstChunk", firstChunk)
+            .setParameter("lastChunk", lastChunk)
+            // Fetches the lazy bytes along instead of selecting them chunk by chunk
+            .setHint(QueryHints.FETCH_GROUP_DEFAULT, HintValues.FALSE)
+            .getResultList());
+    int copied = 0;
+    for (int i = 0; i < chunks.size(); i++) {
+      PayloadChunk chunk = chunks.get(i);
+      if (chunk.getChunkIndex() != firstChunk + i) {
+        break;
+      }
+      long chunkOffset = (long) chunk.getChunkIndex() * chunkSize;
+      int from = (int) Math.max(offset - chunkOffset, 0);
+      int to = (int) Math.min(offset + length - chunkOffset, chunk.getChunkLength());
+      if (to > from) {
+        System.arraycopy(chunk.getBytes(), from, range, copied, to - from);
+        copied += to - from;
+      }
+    }
+    if (copied < length) {
+      throw new IllegalStateException(String.format(
+          "Payload of owner [%s] has no [%s] bytes at offset [%s], it is incomplete or shorter.",
+          ownerId, length, offset));
+    }
+    return range;
+  }
+
+  /**
+   * Deletes all chunks of a payload and returns their number.
+   */
+  public int delete(long ownerId) {
+    return Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("DELETE FROM PayloadChunk c WHERE c.ownerId = :ownerId")
+            .setParameter("ownerId", ownerId)
+            .executeUpdate());
+  }
+
+  private boolean ownerExists(long ownerId) {
+    return Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT COUNT(e) FROM MyEntity e WHERE e.id = :ownerId", Long.class)
+            .setParameter("ownerId", ownerId)
+            .getSingleResult()) > 0;
+  }
+
+  private int chunkCountOf(long length) {
+    long chunkCount = (length + chunkSize - 1) / chunkSize;
+    checkArgument(chunkCount <= Integer.MAX_VALUE, "length [%s] needs too many chunks", length);
+    return (int) chunkCount;
+  }
+}
@@ -0,0 +1,191 @@
+package org.myproject;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import com.google.common.hash.Hashing;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores payloads by their content, so that payloads with the same content are stored only once,
+ * as an opt-in alternative to the single column of {@link MyEntity}.
+ * <p>
+ * A payload is addressed by the hash of its content. Adding a payload looks its hash up first and
+ * only counts another reference if the payload is stored already, so adding a duplicate writes no
+ * payload bytes. Owners keep the returned hash and release it once they no longer refer to the
+ * payload, the last release removes the payload.
+ * </p>
+ * <p>
+ * Entities that are persisted with {@link #persist(byte[])} keep the hash in their payload hash
+ * column instead of the payload in their bytes, read their payload with
+ * {@link #getBytes(MyEntity)} and remove them with {@link #remove(long)}. The reference is counted
+ * and released in the same transaction that inserts or deletes the entity.
+ * </p>
+ */
+public class DeduplicatingPayloadStore {
+  private final EntityManagerFactory entityManagerFactory;
+
+  public DeduplicatingPayloadStore(EntityManagerFactory entityManagerFactory) {
+    this.entityManagerFactory = checkNotNull(entityManagerFactory);
+  }
+
+  /**
+   * Adds a reference to the given payload, storing it if no payload with the same content is
+   * stored yet, and returns the hash that addresses it.
+   */
+  public String add(byte[] bytes) {
+    checkNotNull(bytes);
+
+    String hash = hashOf(bytes);
+    return retryOnceIfStoredConcurrently(() -> Transactions.inTransaction(entityManagerFactory,
+        entityManager -> {
+          addReference(entityManager, hash, bytes);
+          return hash;
+        }));
+  }
+
+  /**
+   * Persists a new entity that refers to the given payload instead of holding it, adding a
+   * reference to the payload.
+   */
+  public MyEntity persist(byte[] bytes) {
+    checkNotNull(bytes);
+
+    String hash = hashOf(bytes);
+    return retryOnceIfStoredConcurrently(() -> Transactions.inTransaction(entityManagerFactory,
+        entityManager -> {
+          addReference(entityManager, hash, bytes);
+          MyEntity myEntity = MyEntity.referencing(hash);
+          entityManager.persist(myEntity);
+          return myEntity;
+        }));
+  }
+
+  /**
+   * Returns the payload of an entity, which is read from this store if the entity refers to it.
+   *
+   * @throws IllegalStateException if the payload the entity refers to is not stored
+   */
+  public byte[] getBytes(MyEntity myEntity) {
+    checkNotNull(myEntity);
+
+    String hash = myEntity.getPayloadHash();
+    if (hash == null) {
+      return myEntity.getBytes();
+    }
+    return find(hash).orElseThrow(() -> new IllegalStateException(String.format(
+        "Payload with hash [%s] of entity [%s] is not stored.", hash, myEntity.getId())));
+  }
+
+  /**
+   * Removes the entity with the given id and returns whether it existed. If it refers to a payload
+   * of this store, that reference is released.
+   */
+  public boolean remove(long id) {
+    return Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      MyEntity myEntity = entityManager.find(MyEntity.class, id);
+      if (myEntity == null) {
+        return false;
+      }
+      entityManager.remove(myEntity);
+      if (myEntity.getPayloadHash() != null) {
+        releaseReference(entityManager, myEntity.getPayloadHash());
+      }
+      return true;
+    });
+  }
+
+  /**
+   * Returns the payload with the given hash, unless no payload with that hash is stored.
+   */
+  public Optional<byte[]> find(String hash) {
+    checkNotNull(hash);
+
+    List<byte[]> found = Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT p.bytes FROM SharedPayload p WHERE p.hash = :hash", byte[].class)
+            .setParameter("hash", hash)
+            .getResultList());
+    return found.isEmpty() ? Optional.<byte[]>empty() : Optional.of(found.get(0));
+  }
+
+  /**
+   * Returns the number of references to the payload with the given hash, which is zero if no
+   * payload with that hash is stored.
+   */
+  public long getReferenceCount(String hash) {
+    checkNotNull(hash);
+
+    List<Long> found = Transactions.inTransaction(entityManagerFactory,
+        entityManager -> entityManager
+            .createQuery("SELECT p.referenceCount FROM SharedPayload p WHERE p.hash = :hash",
+                Long.class)
+            .setParameter("hash", hash)
+            .getResultList());
+    return found.isEmpty() ? 0 : found.get(0);
+  }
+
+  /**
+   * Releases a reference to the payload with the given hash and returns whether that was the last
+   * reference, in which case the payload is removed.
+   *
+   * @throws IllegalArgumentException if no payload with the given hash is stored
+   */
+  public boolean release(String hash) {
+    checkNotNull(hash);
+
+    return Transactions.inTransaction(entityManagerFactory,
+        entityManager -> releaseReference(entityManager, hash));
+  }
+
+  /**
+   * Returns the hash that addresses the given payload.
+   */
+  public static String hashOf(byte[] bytes) {
+    checkNotNull(bytes);
+
+    return Hashing.sha256().hashBytes(bytes).toString();
+  }
+
+  private static void addReference(EntityManager entityManager, String hash, byte[] bytes) {
+    int updated = entityManager.createQuery("UPDATE SharedPayload p"
+        + " SET p.referenceCount = p.referenceCount + 1 WHERE p.hash = :hash")
+        .setParameter("hash", hash)
+        .executeUpdate();
+    if (updated == 0) {
+      entityManager.persist(new SharedPayload(hash, bytes));
+    }
+  }
+
+  private static boolean releaseReference(EntityManager entityManager, String hash) {
+    int updated = entityManager.createQuery("UPDATE SharedPayload p"
+        + " SET p.referenceCount = p.referenceCount - 1"
+        + " WHERE p.hash = :hash AND p.referenceCount > 0")
+        .setParameter("hash", hash)
+        .executeUpdate();
+    if (updated == 0) {
+      throw new IllegalArgumentException(
+          String.format("No payload with hash [%s] is stored.", hash));
+    }
+    return entityManager.createQuery(
+        "DELETE FROM SharedPayload p WHERE p.hash = :hash AND p.referenceCount = 0")
+        .setParameter("hash", hash)
+        .executeUpdate() > 0;
+  }
+
+  private static <T> T retryOnceIfStoredConcurrently(Supplier<T> work) {
+    try {
+      return work.get();
+    } catch (PersistenceException e) {
+      // A concurrent add stored the same payload first and won on the unique hash, the payload is
+      // stored now so counting the reference succeeds
+      return work.get();
+    }
+  }
+}
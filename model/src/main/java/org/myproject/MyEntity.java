@@ -1,44 +1,119 @@
 package org.myproject;
 
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
+import javax.persistence.Basic;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import org.eclipse.persistence.annotations.ChangeTracking;
+import org.eclipse.persistence.annotations.ChangeTrackingType;
+import org.eclipse.persistence.annotations.Mutable;
+import org.myproject.payload.CompressingConverter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 @Entity
-@Table(name = "my_entity")
+@Table(name = "my_entity",
+    indexes = @Index(name = "ix_my_entity_payload_hash", columnList = "payload_hash"))
+// Changes are reported by the woven setters, so no backup clone is kept and compared on commit
+@ChangeTracking(ChangeTrackingType.ATTRIBUTE)
 public class MyEntity {
 
+  // Allocation size is the default, it can be tuned per persistence unit by ModelSessionCustomizer
   @Id
-  @GeneratedValue(strategy = GenerationType.SEQUENCE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "my_entity_seq")
+  @SequenceGenerator(name = "my_entity_seq", sequenceName = "my_entity_seq", allocationSize = 50)
   private Long id;
 
+  // Lazily fetched so that loading an entity does not drag its payload along, requires weaving.
+  // Treated as an immutable value: it is replaced by setBytes but never modified in place.
   @NotNull
+  @Mutable(false)
   @Lob
+  @Basic(fetch = FetchType.LAZY)
+  @Convert(converter = CompressingConverter.class)
   @Column(nullable = false, length = 5120, columnDefinition = "BLOB")
   private byte[] bytes;
 
+  // Drawn once when the entity is created and stored along, so the hash code is well distributed
+  // before the entity has an id and stays the same once the id is assigned or the entity is loaded.
+  // Existing rows get theirs from the migration in db/migration.
+  @Column(name = "hash_key", nullable = false, updatable = false)
+  private int hashKey;
 
+  // Set if the entity is persisted through a DeduplicatingPayloadStore, which holds the payload
+  // while the bytes stay empty. Indexed so that the entities sharing a payload can be found.
+  // Existing tables get the column from the migration in db/migration.
+  @Size(min = 64, max = 64)
+  @Column(name = "payload_hash", length = 64, updatable = false)
+  private String payloadHash;
 
   public MyEntity() {
-    this.bytes = new byte[0];
+    this(new byte[0]);
+  }
+
+  public MyEntity(byte[] bytes) {
+    this.bytes = checkNotNull(bytes);
+    this.hashKey = ThreadLocalRandom.current().nextInt();
+  }
+
+  /**
+   * Creates an entity that refers to a payload of a {@link DeduplicatingPayloadStore}.
+   */
+  static MyEntity referencing(String payloadHash) {
+    MyEntity myEntity = new MyEntity();
+    myEntity.payloadHash = checkNotNull(payloadHash);
+    return myEntity;
   }
 
   public Long getId() {
     return id;
   }
 
-  public byte[] getBytes() { return bytes; }
+  /**
+   * Returns the payload. The array must not be modified, changes are only tracked if the payload is
+   * replaced by {@link #setBytes(byte[])}.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(byte[] bytes) {
+    checkState(payloadHash == null, "payload of entity [%s] is shared, it can not be replaced", id);
+    this.bytes = checkNotNull(bytes);
+  }
+
+  /**
+   * Returns the hash of the payload in the {@link DeduplicatingPayloadStore} that the entity refers
+   * to, or null if the payload is held by {@link #getBytes()}.
+   */
+  public String getPayloadHash() {
+    return payloadHash;
+  }
 
+  /**
+   * Returns the stored hash key, so new entities without an id spread over all buckets of a
+   * hash-based collection and keep their hash code once they are persisted. Instances with the same
+   * id have the same hash code, since they are loaded from the same row and the key is never
+   * updated.
+   */
   @Override
   public int hashCode() {
-    return Objects.hashCode(id);
+    return hashKey;
   }
 
   @Override
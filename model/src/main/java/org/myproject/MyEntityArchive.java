@@ -0,0 +1,347 @@
+package org.myproject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.server.Server;
+import org.myproject.persistence.JdbcConnections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Exports all {@link MyEntity} rows to a file and imports them back, bypassing the persistence
+ * context, for example to back up a table or to seed a test database quickly.
+ * <p>
+ * The file starts with a header of a magic number and a format version, both 4-byte integers, and
+ * holds one record per row: the 8-byte id, the 4-byte hash key and the 4-byte length of the
+ * payload, followed by the payload as it is stored in the column, all big-endian. Payloads are
+ * copied without being decompressed or compressed again. Rows whose payload is held by a
+ * {@link DeduplicatingPayloadStore} are not supported, a table with such rows is not exported.
+ * </p>
+ * <p>
+ * Rows are exported in ascending order of their ids through a forward-only cursor. The file is
+ * imported through memory-mapped windows, the rows are inserted in JDBC batches that are committed
+ * one by one, in parallel on a given executor. A failed import leaves the batches that were
+ * committed before, it returns once the batches that were submitted are done. Ids are imported as
+ * they are. Once all rows are imported, the sequence of the table is restarted beyond the largest
+ * id unless it is already, which requires a database that supports
+ * <code>ALTER SEQUENCE ... RESTART WITH</code>, and the ids that the persistence unit preallocated
+ * before are dropped. Entities should not be persisted into the table while rows are imported.
+ * Imported rows are evicted from the shared cache.
+ * </p>
+ */
+public class MyEntityArchive {
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  private static final int MAGIC = 0x4D594541;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 16;
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  // Mapped at a time, a record that is larger is mapped as a whole
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final int FETCH_SIZE = 1000;
+
+  private static final String SELECT_MAX_ID_SQL = "SELECT MAX(id) FROM my_entity";
+  private static final String COUNT_SHARED_SQL =
+      "SELECT COUNT(*) FROM my_entity WHERE payload_hash IS NOT NULL";
+
+  private static final String SELECT_SQL =
+      "SELECT id, hash_key, bytes FROM my_entity ORDER BY id";
+  private static final String INSERT_SQL =
+      "INSERT INTO my_entity (id, hash_key, bytes) VALUES (?, ?, ?)";
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final int batchSize;
+
+  public MyEntityArchive(EntityManagerFactory entityManagerFactory) {
+    this(entityManagerFactory, DEFAULT_BATCH_SIZE);
+  }
+
+  public MyEntityArchive(EntityManagerFactory entityManagerFactory, int batchSize) {
+    checkArgument(batchSize > 0, "batchSize should be positive but was [%s]", batchSize);
+
+    this.entityManagerFactory = checkNotNull(entityManagerFactory);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Writes all rows to the given file, which is replaced if it exists, and returns their number.
+   *
+   * @throws IllegalStateException if rows refer to payloads of a {@link DeduplicatingPayloadStore}
+   */
+  public long exportTo(Path file) throws IOException {
+    checkNotNull(file);
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION);
+      long count = Transactions.inTransaction(entityManagerFactory, entityManager -> {
+        checkNoSharedPayloads(entityManager);
+        try (PreparedStatement statement = JdbcConnections.of(entityManager).prepareStatement(
+            SELECT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+          statement.setFetchSize(FETCH_SIZE);
+          try (ResultSet resultSet = statement.executeQuery()) {
+            long exported = 0;
+            while (resultSet.next()) {
+              byte[] bytes = resultSet.getBytes(3);
+              ensureRemaining(channel, buffer, RECORD_HEADER_SIZE);
+              buffer.putLong(resultSet.getLong(1)).putInt(resultSet.getInt(2))
+                  .putInt(bytes.length);
+              put(channel, buffer, bytes);
+              exported++;
+            }
+            return exported;
+          }
+        } catch (SQLException e) {
+          throw new PersistenceException(
+              String.format("Exception thrown while exporting to [%s].", file), e);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      flush(channel, buffer);
+      return count;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Inserts all rows of the given file and returns their number. At most
+   * <code>parallelism</code> batches are inserted concurrently on the given executor, each in a
+   * transaction of its own.
+   */
+  public long importFrom(Path file, Executor executor, int parallelism) throws IOException {
+    checkNotNull(file);
+    checkNotNull(executor);
+    checkArgument(parallelism > 0, "parallelism should be positive but was [%s]", parallelism);
+
+    BoundedTasks inserts = new BoundedTasks(executor, parallelism, "import a batch");
+    long count = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Window window = new Window(channel);
+      window.map(0, HEADER_SIZE);
+      if (window.buffer.getInt(0) != MAGIC || window.buffer.getInt(4) != VERSION) {
+        throw new IOException(String.format("[%s] is no archive of version [%s].", file, VERSION));
+      }
+      List<Row> batch = new ArrayList<>(batchSize);
+      // Stops reading once an insert failed, the import has to be repeated anyway
+      for (long position = HEADER_SIZE; position < window.size && inserts.hasFailed() == false;) {
+        int offset = window.map(position, RECORD_HEADER_SIZE);
+        long id = window.buffer.getLong(offset);
+        int hashKey = window.buffer.getInt(offset + 8);
+        int length = window.buffer.getInt(offset + 12);
+        if (length < 0) {
+          throw new IOException(
+              String.format("[%s] is corrupt at position [%s].", file, position));
+        }
+        // Computed in long, a corrupt length may add up beyond an int
+        long recordLength = (long) RECORD_HEADER_SIZE + length;
+        offset = window.map(position, recordLength);
+        ByteBuffer record = window.buffer.duplicate();
+        record.position(offset + RECORD_HEADER_SIZE);
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        batch.add(new Row(id, hashKey, bytes));
+        position += recordLength;
+        count++;
+        if (batch.size() == batchSize) {
+          submit(inserts, batch);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (batch.isEmpty() == false) {
+        submit(inserts, batch);
+      }
+    } catch (IOException | RuntimeException e) {
+      inserts.awaitAllQuietly();
+      entityManagerFactory.getCache().evict(MyEntity.class);
+      throw e;
+    }
+    try {
+      inserts.awaitAll();
+    } finally {
+      entityManagerFactory.getCache().evict(MyEntity.class);
+    }
+    advanceSequence();
+    return count;
+  }
+
+  private static void checkNoSharedPayloads(EntityManager entityManager) {
+    try (Statement statement = JdbcConnections.of(entityManager).createStatement();
+        ResultSet resultSet = statement.executeQuery(COUNT_SHARED_SQL)) {
+      resultSet.next();
+      long shared = resultSet.getLong(1);
+      if (shared > 0) {
+        throw new IllegalStateException(String.format(
+            "[%s] rows refer to payloads of a DeduplicatingPayloadStore, they can not be exported.",
+            shared));
+      }
+    } catch (SQLException e) {
+      throw new PersistenceException("Exception thrown while counting shared payloads.", e);
+    }
+  }
+
+  /**
+   * Restarts the sequence of the table beyond the largest id unless the next block of ids it hands
+   * out is beyond already, and drops the ids that were preallocated from it.
+   */
+  private void advanceSequence() {
+    Server session = JpaHelper.getServerSession(entityManagerFactory);
+    Sequence sequence = session.getDescriptor(MyEntity.class).getSequence();
+    DatabasePlatform platform = session.getPlatform();
+    Long maxId = Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      try (Statement statement = JdbcConnections.of(entityManager).createStatement();
+          ResultSet resultSet = statement.executeQuery(SELECT_MAX_ID_SQL)) {
+        resultSet.next();
+        long id = resultSet.getLong(1);
+        return resultSet.wasNull() ? null : id;
+      } catch (SQLException e) {
+        throw new PersistenceException("Exception thrown while reading the largest id.", e);
+      }
+    });
+    if (maxId == null) {
+      return;
+    }
+
+    // A sequence value is the first id of a block on some platforms and its last on others
+    int blockSize = sequence.getPreallocationSize();
+    long offset = platform.getDefaultSeqenceAtNextValue() ? 0 : blockSize - 1;
+    String name = sequence.getQualified(sequence.getName());
+    Number value = (Number) session.executeQuery(
+        platform.buildSelectQueryForSequenceObject(name, blockSize));
+    if (value.longValue() - offset <= maxId) {
+      Transactions.inTransaction(entityManagerFactory, entityManager -> {
+        try (Statement statement = JdbcConnections.of(entityManager).createStatement()) {
+          statement.execute(String.format("ALTER SEQUENCE %s RESTART WITH %s", name,
+              maxId + 1 + offset));
+          return null;
+        } catch (SQLException e) {
+          throw new PersistenceException(
+              String.format("Exception thrown while restarting sequence [%s].", name), e);
+        }
+      });
+    }
+    // Ids that were preallocated before the import may have been imported
+    session.getSequencingControl().resetSequencing();
+  }
+
+  private void submit(BoundedTasks inserts, List<Row> batch) throws InterruptedIOException {
+    inserts.submit(() -> insert(batch));
+  }
+
+  private void insert(List<Row> batch) {
+    Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      try (PreparedStatement statement =
+          JdbcConnections.of(entityManager).prepareStatement(INSERT_SQL)) {
+        for (Row row : batch) {
+          statement.setLong(1, row.id);
+          statement.setInt(2, row.hashKey);
+          statement.setBytes(3, row.bytes);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        return null;
+      } catch (SQLException e) {
+        throw new PersistenceException(String.format(
+            "Exception thrown while importing entities with ids from [%s] to [%s].",
+            batch.get(0).id, batch.get(batch.size() - 1).id), e);
+      }
+    });
+  }
+
+  private static void put(FileChannel channel, ByteBuffer buffer, byte[] bytes)
+      throws IOException {
+    for (int offset = 0; offset < bytes.length;) {
+      ensureRemaining(channel, buffer, 1);
+      int length = Math.min(buffer.remaining(), bytes.length - offset);
+      buffer.put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int remaining)
+      throws IOException {
+    if (buffer.remaining() < remaining) {
+      flush(channel, buffer);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Maps the part of the file that is read, moving on once a record is not mapped completely.
+   */
+  private static final class Window {
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer buffer;
+    private long start;
+
+    Window(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+    }
+
+    /**
+     * Makes sure that the given range is mapped and returns the offset of its start in the buffer.
+     */
+    int map(long position, long length) throws IOException {
+      if (position + length > size) {
+        throw new IOException(String.format(
+            "Archive is truncated, [%s] bytes at position [%s] are missing.", length, position));
+      }
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException(String.format(
+            "Record of [%s] bytes at position [%s] is too large to be mapped.", length, position));
+      }
+      if (buffer == null || position < start || position + length > start + buffer.capacity()) {
+        start = position;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.max(length, Math.min(WINDOW_SIZE, size - position)));
+      }
+      return (int) (position - start);
+    }
+  }
+
+  private static final class Row {
+    private final long id;
+    private final int hashKey;
+    private final byte[] bytes;
+
+    Row(long id, int hashKey, byte[] bytes) {
+      this.id = id;
+      this.hashKey = hashKey;
+      this.bytes = bytes;
+    }
+  }
+}
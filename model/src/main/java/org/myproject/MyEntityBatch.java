@@ -0,0 +1,88 @@
+package org.myproject;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects entities for a batch, typically new ones that are persisted together with
+ * {@link MyEntityRepository#persistAll(Iterable, int)}. Entities are kept in the order they were
+ * added and each instance is kept once. Instances are told apart by identity rather than by
+ * {@link MyEntity#equals(Object)}, so adding and looking up entities takes constant time whether
+ * they have ids or not.
+ * <p>
+ * Once the entities have ids, {@link #indexById()} maps them by their ids. Removing entities is not
+ * supported.
+ * </p>
+ */
+public class MyEntityBatch extends AbstractCollection<MyEntity> {
+  private final Set<MyEntity> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final List<MyEntity> myEntities = new ArrayList<>();
+
+  public MyEntityBatch() {
+  }
+
+  public MyEntityBatch(Iterable<MyEntity> myEntities) {
+    checkNotNull(myEntities);
+
+    for (MyEntity myEntity : myEntities) {
+      add(myEntity);
+    }
+  }
+
+  /**
+   * Adds the given entity unless the same instance was added before.
+   */
+  @Override
+  public boolean add(MyEntity myEntity) {
+    checkNotNull(myEntity);
+
+    if (instances.add(myEntity)) {
+      myEntities.add(myEntity);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the given instance was added, other instances of the same entity do not count.
+   */
+  @Override
+  public boolean contains(Object obj) {
+    return instances.contains(obj);
+  }
+
+  @Override
+  public Iterator<MyEntity> iterator() {
+    return Collections.unmodifiableList(myEntities).iterator();
+  }
+
+  @Override
+  public int size() {
+    return myEntities.size();
+  }
+
+  /**
+   * Maps the entities that have an id by their ids, in the order they were added.
+   *
+   * @throws IllegalStateException if different instances have the same id
+   */
+  public Map<Long, MyEntity> indexById() {
+    Map<Long, MyEntity> index = new LinkedHashMap<>(myEntities.size() * 4 / 3 + 1);
+    for (MyEntity myEntity : myEntities) {
+      if (myEntity.getId() != null && index.put(myEntity.getId(), myEntity) != null) {
+        throw new IllegalStateException(String.format(
+            "Batch holds more than one instance of entity with id [%s].", myEntity.getId()));
+      }
+    }
+    return index;
+  }
+}
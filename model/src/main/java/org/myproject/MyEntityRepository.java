@@ -0,0 +1,354 @@
+package org.myproject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceException;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.config.ResultSetType;
+import org.eclipse.persistence.queries.ScrollableCursor;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.myproject.payload.CompressingConverter;
+import org.myproject.payload.PayloadCompression;
+import org.myproject.persistence.BlobInputStream;
+import org.myproject.persistence.JdbcConnections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Provides access to {@link MyEntity} rows that goes beyond plain {@link EntityManager} usage.
+ * <p>
+ * The payload of an entity can be written and read as a stream, so it never has to be held on the
+ * heap as a single array. Streaming goes through the JDBC connection of the active transaction and
+ * therefore sees the state of the database, not unflushed changes in the persistence context. The
+ * streams are compressed and decompressed on the fly, just like {@link CompressingConverter} does
+ * for the mapped attribute.
+ * </p>
+ * <p>
+ * Ids, counts and projections are selected without touching the payload column at all, which keeps
+ * listing and existence checks restricted to the primary key index.
+ * </p>
+ * <p>
+ * Large collections of entities can be persisted in chunks, which keeps the persistence context
+ * bounded and lets the provider send the inserts of a chunk as JDBC batches. All entities can be
+ * streamed through a database cursor, which detaches them chunk by chunk as well.
+ * </p>
+ */
+public class MyEntityRepository {
+  private static final String SELECT_BYTES_SQL =
+      "SELECT bytes, payload_hash FROM my_entity WHERE id = ?";
+  // Shared payloads are held by the DeduplicatingPayloadStore, they can not be replaced
+  private static final String UPDATE_BYTES_SQL =
+      "UPDATE my_entity SET bytes = ? WHERE id = ? AND payload_hash IS NULL";
+
+  private final EntityManager entityManager;
+
+  public MyEntityRepository(EntityManager entityManager) {
+    this.entityManager = checkNotNull(entityManager);
+  }
+
+  /**
+   * Persists all given entities and returns their number. The persistence context is flushed and
+   * cleared after every <code>chunkSize</code> entities, so its size stays bounded however many
+   * entities are passed. Note that clearing detaches all entities that were managed before,
+   * including the persisted ones. The inserts of a chunk are sent as JDBC batches if the persistence
+   * unit enables <code>eclipselink.jdbc.batch-writing</code>, the chunk size is best kept a multiple
+   * of the batch size.
+   */
+  public int persistAll(Iterable<MyEntity> myEntities, int chunkSize) {
+    checkNotNull(myEntities);
+    checkArgument(chunkSize > 0, "chunkSize should be positive but was [%s]", chunkSize);
+
+    int count = 0;
+    for (MyEntity myEntity : myEntities) {
+      entityManager.persist(myEntity);
+      count++;
+      if (count % chunkSize == 0) {
+        flushAndClear();
+      }
+    }
+    if (count % chunkSize != 0) {
+      flushAndClear();
+    }
+    return count;
+  }
+
+  /**
+   * Streams all entities in ascending order of their ids, including their payloads. The rows are
+   * read through a database cursor that fetches <code>fetchSize</code> rows per round trip, so the
+   * table is never materialized as a whole. Each time another <code>fetchSize</code> entities have
+   * been consumed, the persistence context is flushed, if a transaction is active, and the consumed
+   * entities are detached. Memory therefore stays bounded however large the table is, but changes
+   * of the consumed entities are written only if they were made before the stream moved on. Other
+   * managed entities stay managed. The stream should be closed to release the cursor, consuming it
+   * completely releases it too.
+   */
+  public Stream<MyEntity> streamAll(int fetchSize) {
+    checkArgument(fetchSize > 0, "fetchSize should be positive but was [%s]", fetchSize);
+
+    ScrollableCursor cursor = (ScrollableCursor) entityManager
+        .createQuery("SELECT e FROM MyEntity e ORDER BY e.id")
+        .setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE)
+        .setHint(QueryHints.RESULT_SET_TYPE, ResultSetType.ForwardOnly)
+        .setHint(QueryHints.JDBC_FETCH_SIZE, fetchSize)
+        // Fetches the lazy payload along, instead of one query per entity
+        .setHint(QueryHints.FETCH_GROUP_DEFAULT, HintValues.FALSE)
+        .getSingleResult();
+    CursorIterator iterator = new CursorIterator(cursor, fetchSize);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(cursor::close);
+  }
+
+  public boolean exists(long id) {
+    return entityManager
+        .createQuery("SELECT e.id FROM MyEntity e WHERE e.id = :id", Long.class)
+        .setParameter("id", id)
+        .setMaxResults(1)
+        .getResultList()
+        .isEmpty() == false;
+  }
+
+  public long count() {
+    return entityManager.createQuery("SELECT COUNT(e.id) FROM MyEntity e", Long.class)
+        .getSingleResult();
+  }
+
+  /**
+   * Returns a page of ids in ascending order.
+   */
+  public List<Long> findIds(int firstResult, int maxResults) {
+    return entityManager.createQuery("SELECT e.id FROM MyEntity e ORDER BY e.id", Long.class)
+        .setFirstResult(firstResult)
+        .setMaxResults(maxResults)
+        .getResultList();
+  }
+
+  /**
+   * Returns all entities as instances of <code>projectionType</code>, ordered by id. The projection
+   * type should declare a constructor taking the values of the given attributes in the same order.
+   * The payload can not be part of a projection, use {@link #openBytesStream(long)} instead.
+   */
+  @SafeVarargs
+  public final <P> List<P> findProjections(Class<P> projectionType,
+      SingularAttribute<MyEntity, ?>... attributes) {
+    checkNotNull(projectionType);
+    checkArgument(attributes.length > 0, "at least one attribute should be selected");
+
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<P> query = criteriaBuilder.createQuery(projectionType);
+    Root<MyEntity> root = query.from(MyEntity.class);
+    Selection<?>[] selections = new Selection<?>[attributes.length];
+    for (int i = 0; i < attributes.length; i++) {
+      checkArgument(isPayload(attributes[i]) == false,
+          "attribute [%s] can not be part of a projection", attributes[i].getName());
+      selections[i] = root.get(attributes[i]);
+    }
+    query.select(criteriaBuilder.construct(projectionType, selections))
+        .orderBy(criteriaBuilder.asc(root.get(MyEntity_.id)));
+    return entityManager.createQuery(query).getResultList();
+  }
+
+  /**
+   * Persists a new entity whose payload is streamed from the given input stream and returns its
+   * id. The entity is not kept in the persistence context, use its id to read it back.
+   */
+  public long persist(InputStream inputStream, long length) {
+    checkNotNull(inputStream);
+
+    MyEntity myEntity = new MyEntity();
+    entityManager.persist(myEntity);
+    entityManager.flush();
+
+    long id = myEntity.getId();
+    writeBytes(id, inputStream, length);
+    return id;
+  }
+
+  public long persist(ReadableByteChannel channel, long length) {
+    checkNotNull(channel);
+
+    return persist(Channels.newInputStream(channel), length);
+  }
+
+  /**
+   * Replaces the payload of an existing entity with exactly <code>length</code> bytes from the
+   * given input stream. A managed instance of the entity is flushed and detached first, since its
+   * in-memory payload no longer reflects the database afterwards.
+   *
+   * @throws IllegalStateException if the payload of the entity is shared
+   */
+  public void writeBytes(long id, InputStream inputStream, long length) {
+    checkNotNull(inputStream);
+    checkArgument(length >= 0, "length should not be negative but was [%s]", length);
+
+    detach(id);
+    try (PreparedStatement statement =
+        JdbcConnections.of(entityManager).prepareStatement(UPDATE_BYTES_SQL)) {
+      statement.setBinaryStream(1,
+          PayloadCompression.encode(inputStream, length, CompressingConverter.DEFAULT_THRESHOLD));
+      statement.setLong(2, id);
+      if (statement.executeUpdate() == 0) {
+        throw exists(id) ? shared(id) : notFound(id);
+      }
+    } catch (SQLException e) {
+      throw new PersistenceException(
+          String.format("Exception thrown while writing bytes of entity with id [%s].", id), e);
+    }
+  }
+
+  public void writeBytes(long id, ReadableByteChannel channel, long length) {
+    checkNotNull(channel);
+
+    writeBytes(id, Channels.newInputStream(channel), length);
+  }
+
+  /**
+   * Opens a stream on the payload of an entity. The stream should be closed before the transaction
+   * ends.
+   *
+   * @throws IllegalStateException if the payload of the entity is shared, read it through
+   *     {@link DeduplicatingPayloadStore#getBytes(MyEntity)} instead
+   */
+  public InputStream openBytesStream(long id) {
+    PreparedStatement statement = null;
+    try {
+      statement = JdbcConnections.of(entityManager).prepareStatement(SELECT_BYTES_SQL);
+      statement.setLong(1, id);
+      ResultSet resultSet = statement.executeQuery();
+      if (resultSet.next() == false) {
+        throw notFound(id);
+      }
+      if (resultSet.getString(2) != null) {
+        throw shared(id);
+      }
+      return PayloadCompression.decode(new BlobInputStream(resultSet.getBlob(1), statement));
+    } catch (SQLException | IOException e) {
+      closeQuietly(statement);
+      throw new PersistenceException(
+          String.format("Exception thrown while reading bytes of entity with id [%s].", id), e);
+    } catch (RuntimeException e) {
+      closeQuietly(statement);
+      throw e;
+    }
+  }
+
+  public ReadableByteChannel openBytesChannel(long id) {
+    return Channels.newChannel(openBytesStream(id));
+  }
+
+  private void flushAndClear() {
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  /**
+   * Iterates over a cursor and detaches the entities it returned after every chunk.
+   */
+  private final class CursorIterator implements Iterator<MyEntity> {
+    private final ScrollableCursor cursor;
+    private final int chunkSize;
+    private final List<MyEntity> chunk;
+
+    CursorIterator(ScrollableCursor cursor, int chunkSize) {
+      this.cursor = cursor;
+      this.chunkSize = chunkSize;
+      this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (cursor.isClosed()) {
+        return false;
+      }
+      if (cursor.hasNext()) {
+        return true;
+      }
+      cursor.close();
+      return false;
+    }
+
+    @Override
+    public MyEntity next() {
+      if (hasNext() == false) {
+        throw new NoSuchElementException();
+      }
+      if (chunk.size() == chunkSize) {
+        detachChunk();
+      }
+      MyEntity myEntity = (MyEntity) cursor.next();
+      chunk.add(myEntity);
+      return myEntity;
+    }
+
+    private void detachChunk() {
+      if (entityManager.isJoinedToTransaction()) {
+        entityManager.flush();
+      }
+      for (MyEntity myEntity : chunk) {
+        entityManager.detach(myEntity);
+      }
+      chunk.clear();
+      // Releases what the cursor kept of the rows read so far
+      cursor.clear();
+    }
+  }
+
+  private static boolean isPayload(SingularAttribute<MyEntity, ?> attribute) {
+    return MyEntity_.bytes.getName().equals(attribute.getName());
+  }
+
+  private void detach(long id) {
+    Object managed = entityManager.unwrap(UnitOfWork.class).getIdentityMapAccessor()
+        .getFromIdentityMap(id, MyEntity.class);
+    if (managed != null) {
+      entityManager.flush();
+      entityManager.detach(managed);
+    }
+    entityManager.getEntityManagerFactory().getCache().evict(MyEntity.class, id);
+  }
+
+  private static EntityNotFoundException notFound(long id) {
+    return new EntityNotFoundException(
+        String.format("Could not find entity with type [%s] and id [%s].",
+            MyEntity.class.getName(), id));
+  }
+
+  private static IllegalStateException shared(long id) {
+    return new IllegalStateException(
+        String.format("Payload of entity with id [%s] is shared, it can not be streamed.", id));
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (@SuppressWarnings("unused") SQLException e) {
+        // Nothing left to release, the original exception is more relevant
+      }
+    }
+  }
+}
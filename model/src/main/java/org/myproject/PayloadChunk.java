@@ -0,0 +1,119 @@
+package org.myproject;
+
+import java.util.Objects;
+
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One fixed-size piece of a payload that is stored in chunks by {@link ChunkedPayloadStore}. The
+ * chunks of a payload are linked to the owning {@link MyEntity} by its id and ordered by their
+ * index, only the last chunk of a payload may be shorter than the chunk size. The owner has to
+ * exist, the chunks are deleted by the database when it is deleted.
+ */
+@Entity
+// The unique constraint also indexes the chunks by owner and index
+@Table(name = "my_entity_chunk", uniqueConstraints = @UniqueConstraint(
+    name = "uk_my_entity_chunk_owner_index", columnNames = {"owner_id", "chunk_index"}))
+// Chunks are read once per range, keeping multi-megabyte payloads in the shared cache does not pay
+@Cacheable(false)
+public class PayloadChunk {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "my_entity_chunk_seq")
+  @SequenceGenerator(name = "my_entity_chunk_seq", sequenceName = "my_entity_chunk_seq",
+      allocationSize = 50)
+  private Long id;
+
+  @NotNull
+  @Column(name = "owner_id", nullable = false, updatable = false)
+  private Long ownerId;
+
+  // Maps the owner column once more, read only, for the foreign key in the generated schema. The
+  // owner is never loaded, chunks are written and read by the id of their owner only.
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "owner_id", insertable = false, updatable = false,
+      foreignKey = @ForeignKey(name = "fk_my_entity_chunk_owner", foreignKeyDefinition =
+          "FOREIGN KEY (owner_id) REFERENCES my_entity (id) ON DELETE CASCADE"))
+  private MyEntity owner;
+
+  @Column(name = "chunk_index", nullable = false, updatable = false)
+  private int chunkIndex;
+
+  // Kept next to the bytes so that lengths can be summed without reading the chunks
+  @Column(name = "chunk_length", nullable = false)
+  private int chunkLength;
+
+  // Lazy so that lengths and indexes can be read without the bytes, requires weaving
+  @NotNull
+  @Lob
+  @Basic(fetch = FetchType.LAZY)
+  @Column(nullable = false, columnDefinition = "BLOB")
+  private byte[] bytes;
+
+  protected PayloadChunk() {
+    // Required by JPA
+  }
+
+  public PayloadChunk(long ownerId, int chunkIndex, byte[] bytes) {
+    checkArgument(chunkIndex >= 0, "chunkIndex should not be negative but was [%s]", chunkIndex);
+    this.ownerId = ownerId;
+    this.chunkIndex = chunkIndex;
+    this.bytes = checkNotNull(bytes);
+    this.chunkLength = bytes.length;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getOwnerId() {
+    return ownerId;
+  }
+
+  public int getChunkIndex() {
+    return chunkIndex;
+  }
+
+  public int getChunkLength() {
+    return chunkLength;
+  }
+
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof PayloadChunk) {
+      PayloadChunk that = (PayloadChunk) obj;
+      return this.id != null && that.id != null ? Objects.equals(this.id, that.id) : false;
+    }
+    return false;
+  }
+}
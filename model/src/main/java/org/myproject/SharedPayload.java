@@ -0,0 +1,107 @@
+package org.myproject;
+
+import java.util.Objects;
+
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import org.myproject.payload.CompressingConverter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A payload that is stored once for all owners with the same content, see
+ * {@link DeduplicatingPayloadStore}. It is addressed by the hash of its content and removed once
+ * the last of its references is released.
+ */
+@Entity
+@Table(name = "my_entity_shared_payload",
+    uniqueConstraints = @UniqueConstraint(columnNames = "payload_hash"))
+// Reference counts are changed by bulk updates, which would invalidate cached payloads anyway
+@Cacheable(false)
+public class SharedPayload {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "my_entity_shared_payload_seq")
+  @SequenceGenerator(name = "my_entity_shared_payload_seq",
+      sequenceName = "my_entity_shared_payload_seq", allocationSize = 50)
+  private Long id;
+
+  // Lower-case hex SHA-256 of the uncompressed payload, the unique constraint indexes it
+  @NotNull
+  @Size(min = 64, max = 64)
+  @Column(name = "payload_hash", nullable = false, updatable = false, length = 64)
+  private String hash;
+
+  @Min(0)
+  @Column(name = "reference_count", nullable = false)
+  private long referenceCount;
+
+  // Lazy so that reference counts can be read without the bytes, requires weaving
+  @NotNull
+  @Lob
+  @Basic(fetch = FetchType.LAZY)
+  @Convert(converter = CompressingConverter.class)
+  @Column(nullable = false, updatable = false, columnDefinition = "BLOB")
+  private byte[] bytes;
+
+  protected SharedPayload() {
+    // Required by JPA
+  }
+
+  public SharedPayload(String hash, byte[] bytes) {
+    this.hash = checkNotNull(hash);
+    this.bytes = checkNotNull(bytes);
+    this.referenceCount = 1;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  public long getReferenceCount() {
+    return referenceCount;
+  }
+
+  /**
+   * Returns the payload. The array must not be modified, it is shared by all references.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof SharedPayload) {
+      SharedPayload that = (SharedPayload) obj;
+      return this.id != null && that.id != null ? Objects.equals(this.id, that.id) : false;
+    }
+    return false;
+  }
+}
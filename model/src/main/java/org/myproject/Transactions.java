@@ -0,0 +1,43 @@
+package org.myproject;
+
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+/**
+ * Runs work in a transaction of an entity manager of its own, for the stores and repositories of
+ * this package that are used without a container managed persistence context.
+ */
+final class Transactions {
+
+  private Transactions() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  /**
+   * Applies the work to a new entity manager and commits its transaction, or rolls it back if the
+   * work or the commit fails. The entity manager is closed afterwards, so entities returned by the
+   * work are detached.
+   */
+  static <T> T inTransaction(EntityManagerFactory entityManagerFactory,
+      Function<EntityManager, T> work) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      EntityTransaction transaction = entityManager.getTransaction();
+      transaction.begin();
+      try {
+        T result = work.apply(entityManager);
+        transaction.commit();
+        return result;
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+    } finally {
+      entityManager.close();
+    }
+  }
+}
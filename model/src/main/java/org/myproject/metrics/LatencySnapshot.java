@@ -0,0 +1,83 @@
+package org.myproject.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Immutable copy of a {@link LatencyHistogram}. The getters make it an attribute of
+ * {@link PersistenceMetricsMXBean}.
+ */
+public final class LatencySnapshot {
+  static final LatencySnapshot EMPTY =
+      new LatencySnapshot(new long[LatencyHistogram.BUCKETS], 0, 0);
+
+  private final long[] bucketCounts;
+  private final long count;
+  private final long totalNanos;
+  private final long maxNanos;
+
+  LatencySnapshot(long[] bucketCounts, long totalNanos, long maxNanos) {
+    this.bucketCounts = bucketCounts;
+    long count = 0;
+    for (long bucketCount : bucketCounts) {
+      count += bucketCount;
+    }
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  public long getMeanNanos() {
+    return count == 0 ? 0 : totalNanos / count;
+  }
+
+  public long getP50Nanos() {
+    return valueAtPercentile(50);
+  }
+
+  public long getP99Nanos() {
+    return valueAtPercentile(99);
+  }
+
+  public long getP999Nanos() {
+    return valueAtPercentile(99.9);
+  }
+
+  /**
+   * Returns the latency that the given percentage of the recorded latencies do not exceed, rounded
+   * up to the upper bound of its bucket.
+   */
+  public long valueAtPercentile(double percentile) {
+    checkArgument(percentile >= 0 && percentile <= 100,
+        "percentile should be between 0 and 100 but was [%s]", percentile);
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+    long seen = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      seen += bucketCounts[i];
+      if (seen >= rank) {
+        return Math.min(LatencyHistogram.upperBoundOf(i), maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%s, mean=%sns, p50=%sns, p99=%sns, p999=%sns, max=%sns", count,
+        getMeanNanos(), getP50Nanos(), getP99Nanos(), getP999Nanos(), maxNanos);
+  }
+}
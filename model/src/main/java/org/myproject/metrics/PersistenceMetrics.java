@@ -0,0 +1,181 @@
+package org.myproject.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+
+/**
+ * Latencies of persistence operations, bytes of LOB columns read and written and time spent on Bean
+ * Validation per entity type of an EclipseLink session. Recording never blocks, so it can stay
+ * enabled in production. The metrics are recorded by listeners that
+ * <code>org.myproject.persistence.ModelSessionCustomizer</code> installs, read them with
+ * {@link #of(EntityManagerFactory)} or through JMX.
+ */
+public final class PersistenceMetrics implements PersistenceMetricsMXBean {
+  public static final String SESSION_PROPERTY = PersistenceMetrics.class.getName();
+
+  public enum Operation {
+    /** Executing the insert of a new entity, with batch writing the statement is only queued. */
+    PERSIST,
+    /** Reading an entity by its id, from the cache or the database. */
+    FIND,
+    /** Calculating the changes of a unit of work and issuing their statements. */
+    FLUSH,
+    /** Committing a unit of work, including its flush and the merge into the shared cache. */
+    COMMIT
+  }
+
+  private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+  private final ConcurrentMap<String, LongAdder> lobBytesRead = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> lobBytesWritten = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LatencyHistogram> validationLatencies =
+      new ConcurrentHashMap<>();
+  private volatile ObjectName objectName;
+
+  public PersistenceMetrics() {
+    for (Operation operation : Operation.values()) {
+      latencies.put(operation, new LatencyHistogram());
+    }
+  }
+
+  /**
+   * Returns the metrics of the session of an entity manager factory.
+   *
+   * @throws IllegalArgumentException if the session records no metrics
+   */
+  public static PersistenceMetrics of(EntityManagerFactory entityManagerFactory) {
+    checkNotNull(entityManagerFactory);
+
+    Object metrics = JpaHelper.getServerSession(entityManagerFactory).getProperty(SESSION_PROPERTY);
+    checkArgument(metrics instanceof PersistenceMetrics,
+        "entity manager factory should record persistence metrics");
+    return (PersistenceMetrics) metrics;
+  }
+
+  public void recordLatency(Operation operation, long nanos) {
+    latencies.get(operation).record(nanos);
+  }
+
+  public void recordLobBytesRead(String entityName, long bytes) {
+    add(lobBytesRead, entityName, bytes);
+  }
+
+  public void recordLobBytesWritten(String entityName, long bytes) {
+    add(lobBytesWritten, entityName, bytes);
+  }
+
+  public void recordValidation(String entityName, long nanos) {
+    LatencyHistogram histogram = validationLatencies.get(entityName);
+    if (histogram == null) {
+      histogram = validationLatencies.computeIfAbsent(entityName, key -> new LatencyHistogram());
+    }
+    histogram.record(nanos);
+  }
+
+  @Override
+  public PersistenceMetricsSnapshot getSnapshot() {
+    SortedMap<String, LatencySnapshot> latencySnapshots = new TreeMap<>();
+    for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+      latencySnapshots.put(entry.getKey().name(), entry.getValue().snapshot());
+    }
+    SortedMap<String, LatencySnapshot> validationSnapshots = new TreeMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : validationLatencies.entrySet()) {
+      validationSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return new PersistenceMetricsSnapshot(latencySnapshots, sums(lobBytesRead),
+        sums(lobBytesWritten), validationSnapshots);
+  }
+
+  @Override
+  public void reset() {
+    for (LatencyHistogram histogram : latencies.values()) {
+      histogram.reset();
+    }
+    for (LatencyHistogram histogram : validationLatencies.values()) {
+      histogram.reset();
+    }
+    for (LongAdder bytes : lobBytesRead.values()) {
+      bytes.reset();
+    }
+    for (LongAdder bytes : lobBytesWritten.values()) {
+      bytes.reset();
+    }
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server under the name of the given session. If
+   * another session with the same name is logged in, for example in another deployment, an
+   * <code>instance</code> key is added to the name to tell them apart.
+   */
+  public ObjectName registerMBean(String sessionName) {
+    checkNotNull(sessionName);
+
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      String prefix = String.format("org.myproject:type=PersistenceMetrics,session=%s",
+          ObjectName.quote(sessionName));
+      ObjectName name = new ObjectName(prefix);
+      for (int instance = 2; ; instance++) {
+        try {
+          mBeanServer.registerMBean(this, name);
+          objectName = name;
+          return name;
+        } catch (InstanceAlreadyExistsException e) {
+          name = new ObjectName(prefix + ",instance=" + instance);
+        }
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException(String.format(
+          "Persistence metrics of session [%s] could not be registered.", sessionName), e);
+    }
+  }
+
+  public void unregisterMBean() {
+    ObjectName name = objectName;
+    if (name == null) {
+      return;
+    }
+    objectName = null;
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    } catch (InstanceNotFoundException e) {
+      // Already unregistered
+    } catch (JMException e) {
+      throw new IllegalStateException(
+          String.format("Persistence metrics [%s] could not be unregistered.", name), e);
+    }
+  }
+
+  private static void add(ConcurrentMap<String, LongAdder> adders, String key, long value) {
+    LongAdder adder = adders.get(key);
+    if (adder == null) {
+      adder = adders.computeIfAbsent(key, k -> new LongAdder());
+    }
+    adder.add(value);
+  }
+
+  private static SortedMap<String, Long> sums(ConcurrentMap<String, LongAdder> adders) {
+    SortedMap<String, Long> sums = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+      sums.put(entry.getKey(), entry.getValue().sum());
+    }
+    return sums;
+  }
+}
@@ -0,0 +1,12 @@
+package org.myproject.metrics;
+
+/**
+ * Management interface of {@link PersistenceMetrics}, registered per EclipseLink session under the
+ * name <code>org.myproject:type=PersistenceMetrics,session=&lt;session name&gt;</code>.
+ */
+public interface PersistenceMetricsMXBean {
+
+  PersistenceMetricsSnapshot getSnapshot();
+
+  void reset();
+}
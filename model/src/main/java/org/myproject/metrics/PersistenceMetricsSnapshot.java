@@ -0,0 +1,68 @@
+package org.myproject.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.myproject.metrics.PersistenceMetrics.Operation;
+
+/**
+ * Immutable copy of the {@link PersistenceMetrics} of a session. Entity types are keyed by their
+ * entity names.
+ */
+public final class PersistenceMetricsSnapshot {
+  private final SortedMap<String, LatencySnapshot> latencies;
+  private final SortedMap<String, Long> lobBytesRead;
+  private final SortedMap<String, Long> lobBytesWritten;
+  private final SortedMap<String, LatencySnapshot> validationLatencies;
+
+  PersistenceMetricsSnapshot(SortedMap<String, LatencySnapshot> latencies,
+      SortedMap<String, Long> lobBytesRead, SortedMap<String, Long> lobBytesWritten,
+      SortedMap<String, LatencySnapshot> validationLatencies) {
+    this.latencies = Collections.unmodifiableSortedMap(latencies);
+    this.lobBytesRead = Collections.unmodifiableSortedMap(lobBytesRead);
+    this.lobBytesWritten = Collections.unmodifiableSortedMap(lobBytesWritten);
+    this.validationLatencies = Collections.unmodifiableSortedMap(validationLatencies);
+  }
+
+  /**
+   * Returns the latencies keyed by the names of the {@link Operation}s.
+   */
+  public Map<String, LatencySnapshot> getLatencies() {
+    return latencies;
+  }
+
+  public LatencySnapshot latencyOf(Operation operation) {
+    return latencies.get(operation.name());
+  }
+
+  public Map<String, Long> getLobBytesRead() {
+    return lobBytesRead;
+  }
+
+  public long lobBytesReadOf(String entityName) {
+    return lobBytesRead.getOrDefault(entityName, 0L);
+  }
+
+  public Map<String, Long> getLobBytesWritten() {
+    return lobBytesWritten;
+  }
+
+  public long lobBytesWrittenOf(String entityName) {
+    return lobBytesWritten.getOrDefault(entityName, 0L);
+  }
+
+  public Map<String, LatencySnapshot> getValidationLatencies() {
+    return validationLatencies;
+  }
+
+  public LatencySnapshot validationLatencyOf(String entityName) {
+    return validationLatencies.getOrDefault(entityName, LatencySnapshot.EMPTY);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("latencies=%s, lobBytesRead=%s, lobBytesWritten=%s, validation=%s",
+        latencies, lobBytesRead, lobBytesWritten, validationLatencies);
+  }
+}
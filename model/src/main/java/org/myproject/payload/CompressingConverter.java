@@ -0,0 +1,41 @@
+package org.myproject.payload;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Compresses <code>byte[]</code> attributes on their way to the database, see
+ * {@link PayloadCompression} for the stored format. Payloads smaller than the threshold are stored
+ * without being compressed, since deflating them costs more than it saves. Subclasses can choose a
+ * different threshold.
+ */
+@Converter
+public class CompressingConverter implements AttributeConverter<byte[], byte[]> {
+  public static final int DEFAULT_THRESHOLD = 256;
+
+  private final int threshold;
+
+  public CompressingConverter() {
+    this(DEFAULT_THRESHOLD);
+  }
+
+  protected CompressingConverter(int threshold) {
+    this.threshold = threshold;
+  }
+
+  @Override
+  public byte[] convertToDatabaseColumn(byte[] attribute) {
+    if (attribute == null) {
+      return null;
+    }
+    return PayloadCompression.encode(attribute, threshold);
+  }
+
+  @Override
+  public byte[] convertToEntityAttribute(byte[] dbData) {
+    if (dbData == null) {
+      return null;
+    }
+    return PayloadCompression.decode(dbData);
+  }
+}
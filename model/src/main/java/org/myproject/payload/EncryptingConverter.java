@@ -0,0 +1,57 @@
+package org.myproject.payload;
+
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.converters.Converter;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Compresses and then encrypts <code>byte[]</code> attributes on their way to the database, see
+ * {@link PayloadCompression} and {@link EnvelopeEncryption}. Payloads are compressed first, since
+ * encrypted payloads do not compress.
+ * <p>
+ * The encryption is taken from the session property <code>{@value #SESSION_PROPERTY}</code> when
+ * the mapping is initialized, so every session encrypts with its own master key. The property is
+ * set by <code>org.myproject.persistence.ModelSessionCustomizer</code> from its master key
+ * property. This is an EclipseLink converter, since a JPA attribute converter has no access to the
+ * session; declare it with <code>@org.eclipse.persistence.annotations.Converter</code> and refer to
+ * it with <code>@org.eclipse.persistence.annotations.Convert</code>.
+ * </p>
+ */
+public class EncryptingConverter implements Converter {
+  public static final String SESSION_PROPERTY = EnvelopeEncryption.class.getName();
+
+  private EnvelopeEncryption envelopeEncryption;
+
+  @Override
+  public void initialize(DatabaseMapping mapping, Session session) {
+    Object configured = session.getProperty(SESSION_PROPERTY);
+    if (configured instanceof EnvelopeEncryption == false) {
+      throw new IllegalStateException(String.format(
+          "Encryption of attribute [%s] is not configured, no master key has been provided.",
+          mapping.getAttributeName()));
+    }
+    envelopeEncryption = (EnvelopeEncryption) configured;
+  }
+
+  @Override
+  public Object convertObjectValueToDataValue(Object objectValue, Session session) {
+    if (objectValue == null) {
+      return null;
+    }
+    return envelopeEncryption.encrypt(
+        PayloadCompression.encode((byte[]) objectValue, CompressingConverter.DEFAULT_THRESHOLD));
+  }
+
+  @Override
+  public Object convertDataValueToObjectValue(Object dataValue, Session session) {
+    if (dataValue == null) {
+      return null;
+    }
+    return PayloadCompression.decode(envelopeEncryption.decrypt((byte[]) dataValue));
+  }
+
+  @Override
+  public boolean isMutable() {
+    return false;
+  }
+}
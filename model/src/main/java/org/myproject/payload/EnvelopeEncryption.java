@@ -0,0 +1,152 @@
+package org.myproject.payload;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Encrypts payloads with AES-GCM using a fresh data key for every payload. The data key is wrapped
+ * with a master key and stored together with the ciphertext, so the same payload encrypts to a
+ * different value every time and only the master key has to be managed.
+ * <p>
+ * An encrypted payload consists of three magic bytes, a version byte, the length of the wrapped data
+ * key, the wrapped data key, the initialization vector and the ciphertext including the
+ * authentication tag.
+ * </p>
+ * <p>
+ * Creating a {@link Cipher} is expensive compared to encrypting a small payload, so every thread
+ * keeps its own ciphers and random generator. Instances are thread-safe.
+ * </p>
+ */
+public class EnvelopeEncryption {
+  private static final byte[] MAGIC = {(byte) 0x93, 'P', 'E'};
+  private static final byte VERSION = 1;
+  private static final int DATA_KEY_LENGTH = 32;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH_BITS = 128;
+  private static final String DATA_ALGORITHM = "AES";
+
+  private final SecretKey masterKey;
+  private final ThreadLocal<Ciphers> ciphers = ThreadLocal.withInitial(Ciphers::new);
+
+  public EnvelopeEncryption(SecretKey masterKey) {
+    this.masterKey = checkNotNull(masterKey);
+    checkArgument(DATA_ALGORITHM.equals(masterKey.getAlgorithm()),
+        "master key should be an [%s] key but was [%s]", DATA_ALGORITHM, masterKey.getAlgorithm());
+  }
+
+  public byte[] encrypt(byte[] plaintext) {
+    checkNotNull(plaintext);
+
+    Ciphers threadCiphers = ciphers.get();
+    byte[] dataKeyBytes = new byte[DATA_KEY_LENGTH];
+    byte[] iv = new byte[IV_LENGTH];
+    threadCiphers.random.nextBytes(dataKeyBytes);
+    threadCiphers.random.nextBytes(iv);
+    SecretKey dataKey = new SecretKeySpec(dataKeyBytes, DATA_ALGORITHM);
+    try {
+      threadCiphers.keyWrap.init(Cipher.WRAP_MODE, masterKey);
+      byte[] wrappedKey = threadCiphers.keyWrap.wrap(dataKey);
+      threadCiphers.data.init(Cipher.ENCRYPT_MODE, dataKey,
+          new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+
+      int headerLength = MAGIC.length + 2 + wrappedKey.length + IV_LENGTH;
+      byte[] encrypted =
+          new byte[headerLength + threadCiphers.data.getOutputSize(plaintext.length)];
+      ByteBuffer.wrap(encrypted)
+          .put(MAGIC)
+          .put(VERSION)
+          .put((byte) wrappedKey.length)
+          .put(wrappedKey)
+          .put(iv);
+      threadCiphers.data.doFinal(plaintext, 0, plaintext.length, encrypted, headerLength);
+      return encrypted;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Exception thrown while encrypting a payload.", e);
+    }
+  }
+
+  public byte[] decrypt(byte[] encrypted) {
+    checkNotNull(encrypted);
+    checkArgument(isEncrypted(encrypted), "payload is not encrypted by envelope encryption");
+
+    Ciphers threadCiphers = ciphers.get();
+    ByteBuffer buffer =
+        ByteBuffer.wrap(encrypted, MAGIC.length + 1, encrypted.length - MAGIC.length - 1);
+    byte[] wrappedKey = new byte[buffer.get() & 0xFF];
+    byte[] iv = new byte[IV_LENGTH];
+    if (buffer.remaining() < wrappedKey.length + IV_LENGTH + TAG_LENGTH_BITS / 8) {
+      throw new IllegalStateException(String.format(
+          "Exception thrown while decrypting a payload, [%s] bytes are too short for a payload with"
+              + " a wrapped key of [%s] bytes.", encrypted.length, wrappedKey.length));
+    }
+    buffer.get(wrappedKey).get(iv);
+    try {
+      threadCiphers.keyWrap.init(Cipher.UNWRAP_MODE, masterKey);
+      Key dataKey = threadCiphers.keyWrap.unwrap(wrappedKey, DATA_ALGORITHM, Cipher.SECRET_KEY);
+      threadCiphers.data.init(Cipher.DECRYPT_MODE, dataKey,
+          new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+      return threadCiphers.data.doFinal(encrypted, buffer.position(), buffer.remaining());
+    } catch (AEADBadTagException e) {
+      throw new IllegalArgumentException("Encrypted payload has been tampered with.", e);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Exception thrown while decrypting a payload.", e);
+    }
+  }
+
+  /**
+   * Encrypts all payloads in parallel on the common fork-join pool and returns them in the same
+   * order.
+   */
+  public List<byte[]> encryptAll(List<byte[]> plaintexts) {
+    checkNotNull(plaintexts);
+
+    return plaintexts.parallelStream().map(this::encrypt).collect(Collectors.toList());
+  }
+
+  public List<byte[]> decryptAll(List<byte[]> encrypted) {
+    checkNotNull(encrypted);
+
+    return encrypted.parallelStream().map(this::decrypt).collect(Collectors.toList());
+  }
+
+  public static boolean isEncrypted(byte[] bytes) {
+    if (bytes.length < MAGIC.length + 2 + IV_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return bytes[MAGIC.length] == VERSION;
+  }
+
+  private static final class Ciphers {
+    private final Cipher data;
+    private final Cipher keyWrap;
+    private final SecureRandom random;
+
+    private Ciphers() {
+      try {
+        data = Cipher.getInstance("AES/GCM/NoPadding");
+        keyWrap = Cipher.getInstance("AESWrap");
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Ciphers required for envelope encryption are missing.", e);
+      }
+      random = new SecureRandom();
+    }
+  }
+}
@@ -0,0 +1,318 @@
+package org.myproject.payload;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Encodes payloads into a self-describing format that is either deflated or stored as is.
+ * <p>
+ * An encoded payload starts with a header of {@value #HEADER_LENGTH} bytes: three magic bytes, one
+ * byte for the format and the length of the original payload as a 32-bit big-endian integer.
+ * Payloads without the magic bytes are returned unchanged by the decode methods, so rows that were
+ * written before compression was introduced can still be read. A payload with a header that does
+ * not match the rest of it is corrupt, decoding it fails instead of returning wrong bytes.
+ * </p>
+ * <p>
+ * Deflaters, inflaters and scratch buffers are kept per thread, so the only allocation when
+ * encoding or decoding an array is the resulting array itself.
+ * </p>
+ */
+public final class PayloadCompression {
+  public static final int HEADER_LENGTH = 8;
+
+  private static final byte[] MAGIC = {(byte) 0x93, 'P', 'Z'};
+  private static final byte FORMAT_STORED = 0;
+  private static final byte FORMAT_DEFLATED = 1;
+  // Deflate can not compress more than this, a larger length in a header can not be right
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
+  private static final ThreadLocal<Codec> CODECS = ThreadLocal.withInitial(Codec::new);
+
+  private PayloadCompression() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  /**
+   * Encodes a payload, it is deflated if it has at least <code>threshold</code> bytes and
+   * deflating actually makes it smaller.
+   */
+  public static byte[] encode(byte[] payload, int threshold) {
+    checkNotNull(payload);
+
+    if (payload.length >= threshold) {
+      byte[] deflated = CODECS.get().deflate(payload);
+      if (deflated != null) {
+        return deflated;
+      }
+    }
+    byte[] encoded = new byte[HEADER_LENGTH + payload.length];
+    writeHeader(encoded, FORMAT_STORED, payload.length);
+    System.arraycopy(payload, 0, encoded, HEADER_LENGTH, payload.length);
+    return encoded;
+  }
+
+  /**
+   * Decodes an encoded payload. Arrays without a header are returned as is.
+   *
+   * @throws IllegalStateException if the header does not match the rest of the array
+   */
+  public static byte[] decode(byte[] encoded) {
+    checkNotNull(encoded);
+
+    if (hasHeader(encoded, encoded.length) == false) {
+      return encoded;
+    }
+    int length = ByteBuffer.wrap(encoded, MAGIC.length + 1, 4).getInt();
+    int available = encoded.length - HEADER_LENGTH;
+    if (encoded[MAGIC.length] == FORMAT_STORED) {
+      checkState(length == available,
+          "stored payload should have [%s] bytes but has [%s]", length, available);
+      return Arrays.copyOfRange(encoded, HEADER_LENGTH, encoded.length);
+    }
+    checkState(length >= 0 && length <= (long) available * MAX_DEFLATE_RATIO,
+        "[%s] deflated bytes can not inflate to [%s] bytes", available, length);
+    return CODECS.get().inflate(encoded, length);
+  }
+
+  /**
+   * Encodes <code>length</code> bytes from the given stream while they are being read. Deflated
+   * streams are not checked for becoming smaller, since that would require buffering them.
+   */
+  public static InputStream encode(InputStream payload, long length, int threshold) {
+    checkNotNull(payload);
+    checkArgument(length >= 0 && length <= Integer.MAX_VALUE,
+        "length should fit in a header but was [%s]", length);
+
+    InputStream limited = ByteStreams.limit(payload, length);
+    byte[] header = new byte[HEADER_LENGTH];
+    if (length >= threshold) {
+      writeHeader(header, FORMAT_DEFLATED, (int) length);
+      return new SequenceInputStream(new ByteArrayInputStream(header),
+          new ReleasingDeflaterInputStream(limited));
+    }
+    writeHeader(header, FORMAT_STORED, (int) length);
+    return new SequenceInputStream(new ByteArrayInputStream(header), limited);
+  }
+
+  /**
+   * Decodes an encoded stream while it is being read. Streams without a header are returned as is,
+   * reading a stream whose header does not match the rest of it throws an {@link IOException}.
+   */
+  public static InputStream decode(InputStream encoded) throws IOException {
+    checkNotNull(encoded);
+
+    PushbackInputStream pushbackInputStream = new PushbackInputStream(encoded, HEADER_LENGTH);
+    byte[] header = new byte[HEADER_LENGTH];
+    int read = readFully(pushbackInputStream, header);
+    if (hasHeader(header, read) == false) {
+      pushbackInputStream.unread(header, 0, read);
+      return pushbackInputStream;
+    }
+    int length = ByteBuffer.wrap(header, MAGIC.length + 1, 4).getInt();
+    if (length < 0) {
+      throw new IOException(
+          String.format("encoded payload should not have a negative length but has [%s]", length));
+    }
+    if (header[MAGIC.length] == FORMAT_STORED) {
+      return new ExactLengthInputStream(pushbackInputStream, length);
+    }
+    return new ExactLengthInputStream(
+        new ReleasingInflaterInputStream(pushbackInputStream), length);
+  }
+
+  private static boolean hasHeader(byte[] bytes, int length) {
+    if (length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    byte format = bytes[MAGIC.length];
+    return format == FORMAT_STORED || format == FORMAT_DEFLATED;
+  }
+
+  private static void writeHeader(byte[] bytes, byte format, int length) {
+    System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+    bytes[MAGIC.length] = format;
+    ByteBuffer.wrap(bytes, MAGIC.length + 1, 4).putInt(length);
+  }
+
+  private static int readFully(InputStream inputStream, byte[] bytes) throws IOException {
+    int total = 0;
+    while (total < bytes.length) {
+      int read = inputStream.read(bytes, total, bytes.length - total);
+      if (read < 0) {
+        break;
+      }
+      total += read;
+    }
+    return total;
+  }
+
+  private static final class Codec {
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] buffer = new byte[8192];
+
+    /**
+     * Returns the deflated payload including its header, or null if deflating does not pay off.
+     */
+    private byte[] deflate(byte[] payload) {
+      int limit = HEADER_LENGTH + payload.length;
+      if (buffer.length < limit) {
+        buffer = new byte[limit];
+      }
+      deflater.reset();
+      deflater.setInput(payload);
+      deflater.finish();
+      int length = HEADER_LENGTH;
+      while (deflater.finished() == false && length < limit) {
+        length += deflater.deflate(buffer, length, limit - length);
+      }
+      if (deflater.finished() == false) {
+        return null;
+      }
+      writeHeader(buffer, FORMAT_DEFLATED, payload.length);
+      return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Returns the inflated payload, the array should inflate to a complete deflate stream of
+     * exactly <code>length</code> bytes.
+     */
+    private byte[] inflate(byte[] encoded, int length) {
+      byte[] payload = new byte[length];
+      inflater.reset();
+      inflater.setInput(encoded, HEADER_LENGTH, encoded.length - HEADER_LENGTH);
+      int total = 0;
+      try {
+        // Inflates one byte more than expected into the scratch buffer to notice longer payloads
+        while (total <= length && inflater.finished() == false) {
+          int inflated = total < length
+              ? inflater.inflate(payload, total, length - total)
+              : inflater.inflate(buffer, 0, 1);
+          if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          total += inflated;
+        }
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("deflated payload is corrupt", e);
+      }
+      checkState(total == length && inflater.finished(),
+          "deflated payload should inflate to [%s] bytes but inflated to [%s]%s", length, total,
+          inflater.finished() ? "" : " before it ended");
+      return payload;
+    }
+  }
+
+  /**
+   * Passes on exactly <code>length</code> bytes and fails if the underlying stream ends earlier or
+   * has more bytes than that.
+   */
+  private static final class ExactLengthInputStream extends FilterInputStream {
+    private final long length;
+    private long remaining;
+
+    private ExactLengthInputStream(InputStream inputStream, long length) {
+      super(inputStream);
+      this.length = length;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) throws IOException {
+      if (count == 0) {
+        return 0;
+      }
+      if (remaining == 0) {
+        if (in.read() >= 0) {
+          throw new IOException(
+              String.format("encoded payload has more than [%s] bytes", length));
+        }
+        return -1;
+      }
+      int read = in.read(bytes, offset, (int) Math.min(count, remaining));
+      if (read < 0) {
+        throw new IOException(String.format(
+            "encoded payload should have [%s] bytes but has [%s]", length, length - remaining));
+      }
+      remaining -= read;
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = in.skip(Math.min(count, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  private static final class ReleasingDeflaterInputStream extends DeflaterInputStream {
+
+    private ReleasingDeflaterInputStream(InputStream inputStream) {
+      super(inputStream, new Deflater(Deflater.BEST_SPEED));
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        def.end();
+      }
+    }
+  }
+
+  private static final class ReleasingInflaterInputStream extends InflaterInputStream {
+
+    private ReleasingInflaterInputStream(InputStream inputStream) {
+      super(inputStream, new Inflater());
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        inf.end();
+      }
+    }
+  }
+}
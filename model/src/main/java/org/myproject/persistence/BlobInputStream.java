@@ -0,0 +1,65 @@
+package org.myproject.persistence;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Streams the content of a JDBC {@link Blob} while keeping the statement that produced it open.
+ * Closing the stream releases the blob and closes the statement together with its result set.
+ */
+public class BlobInputStream extends FilterInputStream {
+  private final Blob blob;
+  private final Statement statement;
+  private boolean closed;
+
+  public BlobInputStream(Blob blob, Statement statement) throws SQLException {
+    super(blob.getBinaryStream());
+    this.blob = blob;
+    this.statement = statement;
+  }
+
+  /**
+   * Returns the total length of the blob in bytes, independent of how much has been read.
+   */
+  public long length() throws IOException {
+    try {
+      return blob.length();
+    } catch (SQLException e) {
+      throw new IOException("Exception thrown while determining the length of a blob.", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      super.close();
+    } finally {
+      release();
+    }
+  }
+
+  private void release() throws IOException {
+    try {
+      blob.free();
+    } catch (SQLException e) {
+      throw new IOException("Exception thrown while releasing a blob.", e);
+    } finally {
+      closeStatement();
+    }
+  }
+
+  private void closeStatement() throws IOException {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      throw new IOException("Exception thrown while closing a statement.", e);
+    }
+  }
+}
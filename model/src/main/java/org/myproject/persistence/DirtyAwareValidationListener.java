@@ -0,0 +1,163 @@
+package org.myproject.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.queries.ObjectLevelModifyQuery;
+import org.myproject.metrics.PersistenceMetrics;
+
+/**
+ * Validates entities with Bean Validation like the <code>CALLBACK</code> validation mode of JPA,
+ * but validates an updated entity only by the constrained attributes that are in its change set.
+ * New entities are validated completely before they get persisted. Attributes that were not changed
+ * are not validated again, so lazy attributes that were never fetched are not fetched for
+ * validation either.
+ * <p>
+ * The constraint metadata is looked up once per entity type. Entity types without constraints are
+ * not validated at all. Use it instead of the validation mode of the persistence unit, otherwise
+ * every entity is validated twice.
+ * </p>
+ */
+public class DirtyAwareValidationListener extends DescriptorEventAdapter {
+  private final Validator validator;
+  private final PersistenceMetrics metrics;
+  private final ConcurrentMap<Class<?>, Constraints> constraintsByType = new ConcurrentHashMap<>();
+
+  public DirtyAwareValidationListener(Validator validator) {
+    this(validator, null);
+  }
+
+  /**
+   * Creates a listener that records the time spent on validation per entity type to the given
+   * metrics, unless they are <code>null</code>.
+   */
+  public DirtyAwareValidationListener(Validator validator, PersistenceMetrics metrics) {
+    this.validator = checkNotNull(validator, "Argument [validator] must not be null.");
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void prePersist(DescriptorEvent event) {
+    Object entity = event.getSource();
+    if (getConstraints(entity.getClass()).isConstrained()) {
+      long startTime = System.nanoTime();
+      Set<ConstraintViolation<Object>> constraintViolations = validator.validate(entity);
+      recordValidation(event, startTime);
+      throwOnViolations("prePersist", entity, constraintViolations);
+    }
+  }
+
+  @Override
+  public void aboutToUpdate(DescriptorEvent event) {
+    Object entity = event.getSource();
+    Constraints constraints = getConstraints(entity.getClass());
+    if (constraints.isConstrained() == false || isDeleted(event)) {
+      return;
+    }
+    long startTime = System.nanoTime();
+    Set<ConstraintViolation<Object>> constraintViolations = validateChanges(event, constraints);
+    recordValidation(event, startTime);
+    throwOnViolations("preUpdate", entity, constraintViolations);
+  }
+
+  private Set<ConstraintViolation<Object>> validateChanges(DescriptorEvent event,
+      Constraints constraints) {
+    Object entity = event.getSource();
+    ObjectChangeSet changeSet = getChangeSet(event);
+    // Class level constraints may depend on any attribute
+    if (changeSet == null || constraints.hasBeanConstraints()) {
+      return validator.validate(entity);
+    }
+    Set<ConstraintViolation<Object>> constraintViolations = new LinkedHashSet<>();
+    for (String attributeName : changeSet.getChangedAttributeNames()) {
+      if (constraints.isConstrained(attributeName)) {
+        constraintViolations.addAll(validator.validateProperty(entity, attributeName));
+      }
+    }
+    return constraintViolations;
+  }
+
+  private void recordValidation(DescriptorEvent event, long startTime) {
+    if (metrics != null) {
+      metrics.recordValidation(event.getDescriptor().getAlias(), System.nanoTime() - startTime);
+    }
+  }
+
+  private static ObjectChangeSet getChangeSet(DescriptorEvent event) {
+    if (event.getChangeSet() != null) {
+      return event.getChangeSet();
+    }
+    if (event.getQuery() instanceof ObjectLevelModifyQuery) {
+      return ((ObjectLevelModifyQuery) event.getQuery()).getObjectChangeSet();
+    }
+    return null;
+  }
+
+  private static boolean isDeleted(DescriptorEvent event) {
+    // Updates are also issued for deleted entities that were modified before, like JPA does not
+    // validate them on update
+    return event.getSession().isUnitOfWork()
+        && ((UnitOfWorkImpl) event.getSession()).isObjectDeleted(event.getSource());
+  }
+
+  private Constraints getConstraints(Class<?> type) {
+    Constraints constraints = constraintsByType.get(type);
+    if (constraints == null) {
+      constraints = constraintsByType.computeIfAbsent(type,
+          key -> new Constraints(validator.getConstraintsForClass(key)));
+    }
+    return constraints;
+  }
+
+  private static void throwOnViolations(String callback, Object entity,
+      Set<ConstraintViolation<Object>> constraintViolations) {
+    if (constraintViolations.isEmpty() == false) {
+      throw new ConstraintViolationException(
+          String.format("Bean Validation constraint(s) violated on %s of [%s].", callback,
+              entity.getClass().getName()),
+          Collections.<ConstraintViolation<?>>unmodifiableSet(constraintViolations));
+    }
+  }
+
+  private static final class Constraints {
+    private final boolean beanConstrained;
+    private final boolean beanConstraints;
+    private final Set<String> constrainedPropertyNames = new HashSet<>();
+
+    Constraints(BeanDescriptor beanDescriptor) {
+      beanConstrained = beanDescriptor.isBeanConstrained();
+      beanConstraints = beanDescriptor.getConstraintDescriptors().isEmpty() == false;
+      for (PropertyDescriptor propertyDescriptor : beanDescriptor.getConstrainedProperties()) {
+        constrainedPropertyNames.add(propertyDescriptor.getPropertyName());
+      }
+    }
+
+    boolean isConstrained() {
+      return beanConstrained;
+    }
+
+    boolean hasBeanConstraints() {
+      return beanConstraints;
+    }
+
+    boolean isConstrained(String attributeName) {
+      return constrainedPropertyNames.contains(attributeName);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package org.myproject.persistence;
+
+/**
+ * Reserves blocks of consecutive ids, typically by advancing a database sequence.
+ */
+public interface IdBlockSource {
+
+  /**
+   * Reserves <code>blockSize</code> consecutive ids that will never be handed out again and
+   * returns the first one. Implementations should be safe to call from multiple threads.
+   */
+  long reserveBlock(int blockSize);
+}
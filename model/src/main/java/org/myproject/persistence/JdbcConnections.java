@@ -0,0 +1,37 @@
+package org.myproject.persistence;
+
+import java.sql.Connection;
+
+import javax.persistence.EntityManager;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Gives access to the JDBC {@link Connection} that backs the current transaction of an
+ * {@link EntityManager}. Statements executed on this connection take part in the same database
+ * transaction as the persistence context, so they are committed or rolled back together with it.
+ */
+public final class JdbcConnections {
+
+  private JdbcConnections() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  /**
+   * Returns the connection of the active transaction. The connection is owned by the persistence
+   * provider and should never be closed by the caller.
+   */
+  public static Connection of(EntityManager entityManager) {
+    checkNotNull(entityManager);
+
+    if (entityManager.getTransaction().isActive() == false) {
+      throw new IllegalStateException(
+          "A JDBC connection can only be obtained while a transaction is active.");
+    }
+    Connection connection = entityManager.unwrap(Connection.class);
+    if (connection == null) {
+      throw new IllegalStateException("Persistence provider did not expose a JDBC connection.");
+    }
+    return connection;
+  }
+}
@@ -0,0 +1,81 @@
+package org.myproject.persistence;
+
+import java.sql.Blob;
+import java.sql.SQLException;
+
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.sessions.Record;
+import org.myproject.metrics.PersistenceMetrics;
+
+/**
+ * Counts the bytes of the binary values in the rows that are read and written for an entity, which
+ * are the LOB columns of the entities of this project. Lazy attributes count when they are fetched,
+ * written rows only contain the changed columns.
+ */
+final class MetricsDescriptorListener extends DescriptorEventAdapter {
+  private final PersistenceMetrics metrics;
+
+  MetricsDescriptorListener(PersistenceMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void postBuild(DescriptorEvent event) {
+    recordRead(event);
+  }
+
+  @Override
+  public void postRefresh(DescriptorEvent event) {
+    recordRead(event);
+  }
+
+  @Override
+  public void aboutToInsert(DescriptorEvent event) {
+    recordWritten(event);
+  }
+
+  @Override
+  public void aboutToUpdate(DescriptorEvent event) {
+    recordWritten(event);
+  }
+
+  private void recordRead(DescriptorEvent event) {
+    long bytes = lobBytesOf(event.getRecord());
+    if (bytes > 0) {
+      metrics.recordLobBytesRead(event.getDescriptor().getAlias(), bytes);
+    }
+  }
+
+  private void recordWritten(DescriptorEvent event) {
+    long bytes = lobBytesOf(event.getRecord());
+    if (bytes > 0) {
+      metrics.recordLobBytesWritten(event.getDescriptor().getAlias(), bytes);
+    }
+  }
+
+  private static long lobBytesOf(Record record) {
+    if (record == null) {
+      return 0;
+    }
+    long bytes = 0;
+    for (Object value : record.values()) {
+      bytes += lengthOf(value);
+    }
+    return bytes;
+  }
+
+  private static long lengthOf(Object value) {
+    try {
+      if (value instanceof byte[]) {
+        return ((byte[]) value).length;
+      } else if (value instanceof Blob) {
+        return ((Blob) value).length();
+      }
+      return 0;
+    } catch (SQLException e) {
+      // The length of a LOB that can no longer be read does not count
+      return 0;
+    }
+  }
+}
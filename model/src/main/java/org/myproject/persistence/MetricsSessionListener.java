@@ -0,0 +1,103 @@
+package org.myproject.persistence;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.myproject.metrics.PersistenceMetrics;
+import org.myproject.metrics.PersistenceMetrics.Operation;
+
+/**
+ * Times the {@link Operation}s of a session from the events that EclipseLink issues before and after
+ * them, and registers the metrics with JMX while the session is logged in. Start times are kept
+ * per thread, since a unit of work and its queries run on the thread that uses them.
+ */
+final class MetricsSessionListener extends SessionEventAdapter {
+  private final PersistenceMetrics metrics;
+  private final ThreadLocal<StartTimes> startTimes = ThreadLocal.withInitial(StartTimes::new);
+
+  MetricsSessionListener(PersistenceMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void postLogin(SessionEvent event) {
+    metrics.registerMBean(event.getSession().getName());
+  }
+
+  @Override
+  public void preLogout(SessionEvent event) {
+    metrics.unregisterMBean();
+  }
+
+  @Override
+  public void preExecuteQuery(SessionEvent event) {
+    if (operationOf(event.getQuery()) != null) {
+      startTimes.get().queries.put(event.getQuery(), System.nanoTime());
+    }
+  }
+
+  @Override
+  public void postExecuteQuery(SessionEvent event) {
+    Operation operation = operationOf(event.getQuery());
+    if (operation != null) {
+      record(operation, startTimes.get().queries.remove(event.getQuery()));
+    }
+  }
+
+  @Override
+  public void preCalculateUnitOfWorkChangeSet(SessionEvent event) {
+    startTimes.get().flushes.put(event.getSession(), System.nanoTime());
+  }
+
+  @Override
+  public void prepareUnitOfWork(SessionEvent event) {
+    record(Operation.FLUSH, startTimes.get().flushes.remove(event.getSession()));
+  }
+
+  @Override
+  public void preCommitUnitOfWork(SessionEvent event) {
+    startTimes.get().commits.put(event.getSession(), System.nanoTime());
+  }
+
+  @Override
+  public void postCommitUnitOfWork(SessionEvent event) {
+    record(Operation.COMMIT, startTimes.get().commits.remove(event.getSession()));
+  }
+
+  @Override
+  public void postReleaseUnitOfWork(SessionEvent event) {
+    // Drops what failed operations of this unit of work left behind, an enclosing unit of work on
+    // the same thread may still be timed
+    StartTimes threadStartTimes = startTimes.get();
+    threadStartTimes.flushes.remove(event.getSession());
+    threadStartTimes.commits.remove(event.getSession());
+  }
+
+  private void record(Operation operation, Long startTime) {
+    if (startTime != null) {
+      metrics.recordLatency(operation, System.nanoTime() - startTime);
+    }
+  }
+
+  private static Operation operationOf(DatabaseQuery query) {
+    if (query == null) {
+      return null;
+    }
+    if (query.isReadObjectQuery()) {
+      return Operation.FIND;
+    }
+    if (query.isInsertObjectQuery()) {
+      return Operation.PERSIST;
+    }
+    return null;
+  }
+
+  private static final class StartTimes {
+    private final Map<DatabaseQuery, Long> queries = new IdentityHashMap<>();
+    private final Map<Object, Long> flushes = new IdentityHashMap<>();
+    private final Map<Object, Long> commits = new IdentityHashMap<>();
+  }
+}
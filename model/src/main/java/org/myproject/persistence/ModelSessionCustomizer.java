@@ -0,0 +1,199 @@
+package org.myproject.persistence;
+
+import java.util.Base64;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+import org.myproject.metrics.PersistenceMetrics;
+import org.myproject.payload.EncryptingConverter;
+import org.myproject.payload.EnvelopeEncryption;
+
+/**
+ * Applies the persistence unit properties of this project to an EclipseLink session. Register it
+ * in a <code>persistence.xml</code> with the property <code>eclipselink.session.customizer</code>.
+ * <p>
+ * Supported properties:
+ * </p>
+ * <ul>
+ * <li><code>{@value #SEQUENCE_PREALLOCATION_SIZE}</code>: number of ids fetched from a sequence in
+ * one round trip, overrides the allocation size declared on the entities. It should be equal to the
+ * <code>INCREMENT BY</code> of the database sequences, which is what EclipseLink generates the
+ * sequences with. Existing sequences are checked by a {@link SequenceIncrementCheck} at login.</li>
+ * <li><code>{@value #SEQUENCE_STRIPES}</code>: replaces the native sequences of the entities by a
+ * {@link StripedBlockSequence} with the given number of stripes, <code>0</code> uses
+ * {@link StripedIdAllocator#defaultStripeCount()}.</li>
+ * <li><code>{@value #ENCRYPTION_MASTER_KEY}</code>: Base64 encoded AES key that wraps the data keys
+ * of attributes converted by {@link EncryptingConverter}. It is only known to the session it is
+ * set for.</li>
+ * <li><code>{@value #CACHE_MAX_BYTES}</code>: caches the entities in a
+ * {@link PayloadWeightedIdentityMap} per entity type that holds at most the given number of
+ * bytes.</li>
+ * <li><code>{@value #VALIDATION_DIRTY_AWARE}</code>: <code>true</code> validates the entities with
+ * a {@link DirtyAwareValidationListener}, which requires
+ * <code>javax.persistence.validation.mode</code> to be <code>NONE</code>.</li>
+ * <li><code>{@value #METRICS_ENABLED}</code>: <code>true</code> records {@link PersistenceMetrics}
+ * for the session, including the validation time of the dirty aware validation.</li>
+ * </ul>
+ */
+public class ModelSessionCustomizer implements SessionCustomizer {
+  public static final String SEQUENCE_PREALLOCATION_SIZE = "myproject.sequencing.preallocation-size";
+  public static final String SEQUENCE_STRIPES = "myproject.sequencing.stripes";
+  public static final String ENCRYPTION_MASTER_KEY = "myproject.encryption.master-key";
+  public static final String CACHE_MAX_BYTES = "myproject.cache.max-bytes";
+  public static final String VALIDATION_DIRTY_AWARE = "myproject.validation.dirty-aware";
+  public static final String METRICS_ENABLED = "myproject.metrics.enabled";
+
+  @Override
+  public void customize(Session session) {
+    customizeSequencing(session);
+    customizeEncryption(session);
+    customizeCaching(session);
+    customizeMetrics(session);
+    customizeValidation(session);
+  }
+
+  private static void customizeSequencing(Session session) {
+    Integer preallocationSize = getIntegerProperty(session, SEQUENCE_PREALLOCATION_SIZE);
+    Integer stripes = getIntegerProperty(session, SEQUENCE_STRIPES);
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      if (descriptor.usesSequenceNumbers()) {
+        Sequence sequence = getSequence(session, descriptor);
+        if (preallocationSize != null) {
+          sequence.setPreallocationSize(preallocationSize);
+        }
+        if (stripes != null && sequence instanceof NativeSequence
+            && (sequence instanceof StripedBlockSequence) == false) {
+          session.getLogin().addSequence(stripe(session, sequence, stripes));
+        }
+      }
+    }
+    if (preallocationSize != null) {
+      session.getEventManager().addListener(new SequenceIncrementCheck());
+    }
+  }
+
+  private static void customizeEncryption(Session session) {
+    Object masterKey = session.getProperty(ENCRYPTION_MASTER_KEY);
+    if (masterKey == null) {
+      return;
+    }
+    byte[] keyBytes;
+    try {
+      keyBytes = Base64.getDecoder().decode(masterKey.toString().trim());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.format("Property [%s] should be Base64 encoded.", ENCRYPTION_MASTER_KEY), e);
+    }
+    session.setProperty(EncryptingConverter.SESSION_PROPERTY,
+        new EnvelopeEncryption(new SecretKeySpec(keyBytes, "AES")));
+  }
+
+  private static void customizeCaching(Session session) {
+    Long maxBytes = getLongProperty(session, CACHE_MAX_BYTES);
+    if (maxBytes == null) {
+      return;
+    }
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      descriptor.setIdentityMapClass(PayloadWeightedIdentityMap.class);
+      descriptor.setProperty(PayloadWeightedIdentityMap.MAX_BYTES_PROPERTY, maxBytes);
+    }
+  }
+
+  private static void customizeValidation(Session session) {
+    if (getBooleanProperty(session, VALIDATION_DIRTY_AWARE) == false) {
+      return;
+    }
+    Object validationMode = session.getProperty(PersistenceUnitProperties.VALIDATION_MODE);
+    if (validationMode == null
+        || "NONE".equalsIgnoreCase(validationMode.toString().trim()) == false) {
+      throw new IllegalArgumentException(String.format(
+          "Property [%s] requires property [%s] to be [NONE] but was [%s].", VALIDATION_DIRTY_AWARE,
+          PersistenceUnitProperties.VALIDATION_MODE, validationMode));
+    }
+    DirtyAwareValidationListener listener = new DirtyAwareValidationListener(
+        getValidatorFactory(session).getValidator(),
+        (PersistenceMetrics) session.getProperty(PersistenceMetrics.SESSION_PROPERTY));
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      descriptor.getEventManager().addListener(listener);
+    }
+  }
+
+  private static void customizeMetrics(Session session) {
+    if (getBooleanProperty(session, METRICS_ENABLED) == false) {
+      return;
+    }
+    PersistenceMetrics metrics = new PersistenceMetrics();
+    session.setProperty(PersistenceMetrics.SESSION_PROPERTY, metrics);
+    session.getEventManager().addListener(new MetricsSessionListener(metrics));
+    MetricsDescriptorListener listener = new MetricsDescriptorListener(metrics);
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      descriptor.getEventManager().addListener(listener);
+    }
+  }
+
+  private static ValidatorFactory getValidatorFactory(Session session) {
+    Object validatorFactory = session.getProperty(PersistenceUnitProperties.VALIDATOR_FACTORY);
+    if (validatorFactory instanceof ValidatorFactory) {
+      return (ValidatorFactory) validatorFactory;
+    }
+    return Validation.buildDefaultValidatorFactory();
+  }
+
+  private static Sequence stripe(Session session, Sequence sequence, int stripes) {
+    int stripeCount = stripes > 0 ? stripes : StripedIdAllocator.defaultStripeCount();
+    StripedBlockSequence stripedSequence = new StripedBlockSequence(session, sequence.getName(),
+        sequence.getPreallocationSize(), sequence.getInitialValue(), stripeCount);
+    if (sequence.isCustomQualifier()) {
+      stripedSequence.setQualifier(sequence.getQualifier());
+    }
+    return stripedSequence;
+  }
+
+  static Sequence getSequence(Session session, ClassDescriptor descriptor) {
+    Sequence sequence = session.getLogin().getSequence(descriptor.getSequenceNumberName());
+    if (sequence == null) {
+      return session.getLogin().getDefaultSequence();
+    }
+    return sequence;
+  }
+
+  static boolean getBooleanProperty(Session session, String name) {
+    Object value = session.getProperty(name);
+    return value != null && Boolean.parseBoolean(value.toString().trim());
+  }
+
+  static Long getLongProperty(Session session, String name) {
+    Object value = session.getProperty(name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(value.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          String.format("Property [%s] should be a long but was [%s].", name, value), e);
+    }
+  }
+
+  static Integer getIntegerProperty(Session session, String name) {
+    Object value = session.getProperty(name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value.toString().trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          String.format("Property [%s] should be an integer but was [%s].", name, value), e);
+    }
+  }
+}
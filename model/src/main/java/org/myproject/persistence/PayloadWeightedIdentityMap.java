@@ -0,0 +1,289 @@
+package org.myproject.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.FetchGroupManager;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.FullIdentityMap;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+
+/**
+ * Identity map that weighs its entries by the size of their <code>byte[]</code> attributes and
+ * evicts entries to stay below a budget of bytes, instead of counting entries like the identity
+ * maps of EclipseLink do. The budget is read from the descriptor property
+ * <code>{@value #MAX_BYTES_PROPERTY}</code>, which is set by {@link ModelSessionCustomizer}.
+ * <p>
+ * Entries are evicted in insertion order, but entries that have been read since they were last
+ * considered for eviction get a second chance. Reads never take a lock and leave the weight alone,
+ * which keeps hot reads as cheap as they are in a {@link FullIdentityMap}. Lazy attributes that
+ * have not been fetched do not count, an entry is weighed again when its object is replaced or the
+ * lock under which it was built, merged or fetched into is released. Entries that are
+ * locked cannot be evicted, so a map may exceed its budget until the locks of a commit have been
+ * released. Removed entries stay in the eviction queue until they are polled, or swept once they
+ * outnumber the entries of the map, so the queue is bounded even while the map is under budget.
+ * </p>
+ */
+public class PayloadWeightedIdentityMap extends FullIdentityMap {
+  public static final String MAX_BYTES_PROPERTY = ModelSessionCustomizer.CACHE_MAX_BYTES;
+
+  // Rough estimate of the cache key, the map entry and the object without its payloads
+  static final long ENTRY_OVERHEAD = 128;
+
+  private final long maxBytes;
+  private final List<DatabaseMapping> directMappings = new ArrayList<>();
+  private final Queue<WeightedCacheKey> evictionQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicLong weight = new AtomicLong();
+  private final AtomicInteger removedInQueue = new AtomicInteger();
+  private final AtomicBoolean evicting = new AtomicBoolean();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public PayloadWeightedIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session,
+      boolean isolated) {
+    super(size, descriptor, session, isolated);
+    Object configuredMaxBytes =
+        descriptor == null ? null : descriptor.getProperty(MAX_BYTES_PROPERTY);
+    this.maxBytes = configuredMaxBytes == null ? Long.MAX_VALUE : (Long) configuredMaxBytes;
+    if (descriptor != null) {
+      for (DatabaseMapping mapping : descriptor.getMappings()) {
+        if (mapping.isAbstractDirectMapping()) {
+          directMappings.add(mapping);
+        }
+      }
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue,
+      long readTime) {
+    return new WeightedCacheKey(this, primaryKey, object, writeLockValue, readTime, isIsolated);
+  }
+
+  @Override
+  public CacheKey getCacheKey(Object searchKey, boolean forMerge) {
+    CacheKey cacheKey = super.getCacheKey(searchKey, forMerge);
+    if (forMerge) {
+      // Merges of a commit are not reads, they neither count nor protect an entry from eviction
+      return cacheKey;
+    }
+    if (cacheKey == null || cacheKey.getObject() == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+      if (cacheKey instanceof WeightedCacheKey) {
+        WeightedCacheKey weightedCacheKey = (WeightedCacheKey) cacheKey;
+        // Avoids writing the shared flag on every read of a hot entry
+        if (weightedCacheKey.referenced == false) {
+          weightedCacheKey.referenced = true;
+        }
+      }
+    }
+    return cacheKey;
+  }
+
+  @Override
+  protected CacheKey putCacheKeyIfAbsent(CacheKey searchKey) {
+    CacheKey existing = super.putCacheKeyIfAbsent(searchKey);
+    if (existing == null && searchKey instanceof WeightedCacheKey) {
+      WeightedCacheKey weightedCacheKey = (WeightedCacheKey) searchKey;
+      weightedCacheKey.weight.set(0);
+      evictionQueue.add(weightedCacheKey);
+      reweigh(weightedCacheKey);
+    }
+    return existing;
+  }
+
+  @Override
+  public Object remove(CacheKey cacheKey) {
+    if (cacheKey == null) {
+      return null;
+    }
+    CacheKey mapped = getCacheKeys().get(cacheKey.getKey());
+    Object removed = super.remove(cacheKey);
+    if (mapped instanceof WeightedCacheKey) {
+      WeightedCacheKey weightedCacheKey = (WeightedCacheKey) mapped;
+      long removedWeight = weightedCacheKey.weight.getAndSet(WeightedCacheKey.UNTRACKED);
+      if (removedWeight > 0) {
+        weight.addAndGet(-removedWeight);
+      }
+      if (removedWeight != WeightedCacheKey.UNTRACKED
+          && removedInQueue.incrementAndGet() > getSize()) {
+        sweep();
+      }
+    }
+    return removed;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the estimated number of bytes held by the entries of this map.
+   */
+  public long getWeight() {
+    return weight.get();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  void reweigh(WeightedCacheKey cacheKey) {
+    long newWeight = weigh(cacheKey.getObject());
+    while (true) {
+      long oldWeight = cacheKey.weight.get();
+      if (oldWeight == WeightedCacheKey.UNTRACKED) {
+        return;
+      }
+      if (oldWeight == newWeight) {
+        break;
+      }
+      if (cacheKey.weight.compareAndSet(oldWeight, newWeight)) {
+        weight.addAndGet(newWeight - oldWeight);
+        break;
+      }
+    }
+    evictIfOverBudget();
+  }
+
+  void evictIfOverBudget() {
+    // Only one thread evicts at a time, the others leave it to that thread or a later trigger
+    if (weight.get() > maxBytes && evicting.compareAndSet(false, true)) {
+      try {
+        evict();
+      } finally {
+        evicting.set(false);
+      }
+    }
+  }
+
+  private long weigh(Object object) {
+    if (object == null) {
+      return ENTRY_OVERHEAD;
+    }
+    FetchGroupManager fetchGroupManager = descriptor.getFetchGroupManager();
+    long objectWeight = ENTRY_OVERHEAD;
+    for (DatabaseMapping mapping : directMappings) {
+      if (fetchGroupManager != null
+          && fetchGroupManager.isAttributeFetched(object, mapping.getAttributeName()) == false) {
+        continue;
+      }
+      Object value = mapping.getAttributeValueFromObject(object);
+      if (value instanceof byte[]) {
+        objectWeight += ((byte[]) value).length;
+      }
+    }
+    return objectWeight;
+  }
+
+  private void evict() {
+    // Every entry may be passed over once for having been read, or for being locked. The queue
+    // holds the entries of the map and the removed ones that were not polled yet, counting them
+    // avoids walking the queue.
+    int attempts = 2 * (getSize() + Math.max(removedInQueue.get(), 0));
+    while (weight.get() > maxBytes && attempts-- > 0) {
+      WeightedCacheKey cacheKey = evictionQueue.poll();
+      if (cacheKey == null) {
+        return;
+      }
+      if (cacheKey.weight.get() == WeightedCacheKey.UNTRACKED) {
+        removedInQueue.decrementAndGet();
+        continue;
+      }
+      if (cacheKey.referenced) {
+        cacheKey.referenced = false;
+        evictionQueue.add(cacheKey);
+      } else if (cacheKey.getActiveThread() == Thread.currentThread()
+          || cacheKey.acquireNoWait() == false) {
+        // The object of the entry is being built or merged, it is not evicted underneath
+        evictionQueue.add(cacheKey);
+      } else {
+        try {
+          remove(cacheKey);
+          // Polled already, it is not left behind in the queue
+          removedInQueue.decrementAndGet();
+          evictions.increment();
+        } finally {
+          cacheKey.release();
+        }
+      }
+    }
+  }
+
+  private void sweep() {
+    // Shares the guard of the eviction, which polls the same queue
+    if (evicting.compareAndSet(false, true)) {
+      try {
+        removedInQueue.set(0);
+        evictionQueue.removeIf(cacheKey -> cacheKey.weight.get() == WeightedCacheKey.UNTRACKED);
+      } finally {
+        evicting.set(false);
+      }
+    }
+  }
+
+  int getEvictionQueueSize() {
+    return evictionQueue.size();
+  }
+
+  static final class WeightedCacheKey extends CacheKey {
+    static final long UNTRACKED = -1;
+
+    private final PayloadWeightedIdentityMap identityMap;
+    private final AtomicLong weight = new AtomicLong(UNTRACKED);
+    private volatile boolean referenced;
+
+    private WeightedCacheKey(PayloadWeightedIdentityMap identityMap, Object primaryKey,
+        Object object, Object writeLockValue, long readTime, boolean isolated) {
+      super(primaryKey, object, writeLockValue, readTime, isolated);
+      this.identityMap = identityMap;
+    }
+
+    @Override
+    public void setObject(Object object) {
+      super.setObject(object);
+      // Also invoked by the constructor of the super class, before this key is part of a map
+      if (identityMap != null) {
+        identityMap.reweigh(this);
+      }
+    }
+
+    @Override
+    public void release() {
+      super.release();
+      reweighIfUnlocked();
+    }
+
+    @Override
+    public void releaseDeferredLock() {
+      super.releaseDeferredLock();
+      reweighIfUnlocked();
+    }
+
+    private void reweighIfUnlocked() {
+      // Building, merging and fetching attributes change the object in place under the lock
+      if (isAcquired() == false) {
+        identityMap.reweigh(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.myproject.persistence;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.exceptions.DatabaseException;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.queries.ValueReadQuery;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * Checks after login that the database sequences of the entities are incremented by their
+ * preallocation size. A native sequence hands out the ids up to the value it fetched, so a database
+ * sequence that is incremented by less makes it hand out ids twice.
+ * <p>
+ * The increment is read from <code>INFORMATION_SCHEMA.SEQUENCES</code>. Sequences that are not
+ * found there are not checked, for example because the schema is generated after login, and
+ * neither are databases that do not have that view.
+ * </p>
+ */
+final class SequenceIncrementCheck extends SessionEventAdapter {
+  private static final String SELECT_INCREMENT = "SELECT INCREMENT"
+      + " FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(#NAME)";
+
+  @Override
+  public void postLogin(SessionEvent event) {
+    Session session = event.getSession();
+    Set<String> checkedSequences = new HashSet<>();
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      if (descriptor.usesSequenceNumbers()) {
+        Sequence sequence = ModelSessionCustomizer.getSequence(session, descriptor);
+        if (sequence instanceof NativeSequence && checkedSequences.add(sequence.getName())) {
+          check(session, sequence);
+        }
+      }
+    }
+  }
+
+  private static void check(Session session, Sequence sequence) {
+    Object increment;
+    try {
+      ValueReadQuery query = new ValueReadQuery(SELECT_INCREMENT);
+      query.addArgument("NAME");
+      increment = session.executeQuery(query, Collections.singletonList(sequence.getName()));
+    } catch (DatabaseException e) {
+      session.getSessionLog().log(SessionLog.FINE, SessionLog.SEQUENCING,
+          "Increment of sequence [{0}] can not be checked: {1}",
+          new Object[] {sequence.getName(), e.getMessage()}, false);
+      return;
+    }
+    if (increment != null
+        && Long.parseLong(increment.toString().trim()) != sequence.getPreallocationSize()) {
+      throw new IllegalStateException(String.format(
+          "Sequence [%s] is incremented by [%s] but preallocates [%s] ids, property [%s] should "
+              + "be equal to its INCREMENT BY.",
+          sequence.getName(), increment, sequence.getPreallocationSize(),
+          ModelSessionCustomizer.SEQUENCE_PREALLOCATION_SIZE));
+    }
+  }
+}
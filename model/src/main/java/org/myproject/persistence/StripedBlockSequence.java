@@ -0,0 +1,102 @@
+package org.myproject.persistence;
+
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.internal.databaseaccess.Platform;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.ValueReadQuery;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sessions.Session;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Native sequence that leases blocks of ids from the database sequence and hands them out through
+ * a {@link StripedIdAllocator}. EclipseLink serializes preallocation of a sequence under a lock,
+ * this sequence opts out of that and lets concurrent writers take ids without contending.
+ * <p>
+ * The database sequence is created and incremented by the preallocation size, just like for a
+ * regular native sequence, so both can be used on the same database interchangeably. The platform
+ * should support sequence objects.
+ * </p>
+ */
+public class StripedBlockSequence extends NativeSequence {
+  private final transient Session session;
+  private final int stripeCount;
+  private transient volatile StripedIdAllocator allocator;
+
+  public StripedBlockSequence(Session session, String name, int blockSize, int initialValue,
+      int stripeCount) {
+    super(name, blockSize, initialValue, false);
+    this.session = checkNotNull(session);
+    this.stripeCount = stripeCount;
+  }
+
+  @Override
+  public boolean shouldUsePreallocation() {
+    // Makes EclipseLink ask for every value separately instead of preallocating under a lock
+    return false;
+  }
+
+  @Override
+  public Object getGeneratedValue(Accessor accessor, AbstractSession writeSession,
+      String seqName) {
+    StripedIdAllocator connectedAllocator = allocator;
+    if (connectedAllocator == null) {
+      throw new IllegalStateException(
+          String.format("Sequence [%s] is not connected.", getName()));
+    }
+    return connectedAllocator.next();
+  }
+
+  @Override
+  public void onConnect() {
+    super.onConnect();
+    if (hasDelegateSequence() || shouldAcquireValueAfterInsert()) {
+      throw new IllegalStateException(String.format(
+          "Sequence [%s] can only be striped on a platform that supports sequence objects.",
+          getName()));
+    }
+  }
+
+  @Override
+  public synchronized void onConnect(Platform platform) {
+    super.onConnect(platform);
+    // Connected once per session that uses it, the allocator is shared until the last disconnects
+    if (allocator == null) {
+      allocator = new StripedIdAllocator(this::reserveBlock, getPreallocationSize(), stripeCount);
+    }
+  }
+
+  @Override
+  public synchronized void onDisconnect(Platform platform) {
+    super.onDisconnect(platform);
+    // The depth counts the sessions that are still connected
+    if (depth == 0 && allocator != null) {
+      allocator.close();
+      allocator = null;
+    }
+  }
+
+  @Override
+  public Object clone() {
+    StripedBlockSequence clone = (StripedBlockSequence) super.clone();
+    // The clone starts out disconnected, it should neither use nor close the allocator of this one
+    clone.allocator = null;
+    return clone;
+  }
+
+  private long reserveBlock(int blockSize) {
+    // Executed on the server session, it does not need the transaction of the requesting thread
+    ValueReadQuery query = buildSelectQuery(getName(), blockSize);
+    Number value = (Number) session.executeQuery(query);
+    if (value == null) {
+      throw new IllegalStateException(
+          String.format("Sequence [%s] did not return a value.", getName()));
+    }
+    if (((DatasourcePlatform) getDatasourcePlatform()).getDefaultSeqenceAtNextValue()) {
+      return value.longValue();
+    }
+    return value.longValue() - blockSize + 1;
+  }
+}
@@ -0,0 +1,145 @@
+package org.myproject.persistence;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hands out ids from blocks that are reserved at an {@link IdBlockSource}, without locking.
+ * <p>
+ * Threads are spread over a number of stripes, each stripe owning its own block. Taking an id is a
+ * single atomic increment on the block of the stripe of the calling thread. Once half of a block
+ * has been handed out, its successor is reserved in the background, so that a thread normally
+ * never waits for the source. Ids are unique but not handed out in ascending order across threads,
+ * and the remainder of the blocks is lost when the allocator is closed. Taking an id that needs a
+ * new block after that throws an {@link IllegalStateException}.
+ * </p>
+ */
+public class StripedIdAllocator implements AutoCloseable {
+  private final IdBlockSource idBlockSource;
+  private final int blockSize;
+  private final AtomicReference<Block>[] stripes;
+  private final int stripeMask;
+  private final ExecutorService refillExecutor;
+
+  @SuppressWarnings("unchecked")
+  public StripedIdAllocator(IdBlockSource idBlockSource, int blockSize, int stripeCount) {
+    checkArgument(blockSize > 0, "blockSize should be positive but was [%s]", blockSize);
+    checkArgument(stripeCount > 0, "stripeCount should be positive but was [%s]", stripeCount);
+
+    this.idBlockSource = checkNotNull(idBlockSource);
+    this.blockSize = blockSize;
+    this.refillExecutor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("id-block-refill-%d").setDaemon(true).build());
+    this.stripes = new AtomicReference[ceilingPowerOfTwo(stripeCount)];
+    this.stripeMask = stripes.length - 1;
+    for (int i = 0; i < stripes.length; i++) {
+      // Starts out exhausted, so the first block is reserved like any other successor
+      stripes[i] = new AtomicReference<>(new Block(0, 0));
+    }
+  }
+
+  /**
+   * Returns the default number of stripes, which is the number of available processors.
+   */
+  public static int defaultStripeCount() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  public long next() {
+    AtomicReference<Block> stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+    while (true) {
+      Block block = stripe.get();
+      long id = block.cursor.getAndIncrement();
+      if (id <= block.last) {
+        if (id == block.refillAt) {
+          block.reserveSuccessor();
+        }
+        return id;
+      }
+      stripe.compareAndSet(block, block.awaitSuccessor());
+    }
+  }
+
+  @Override
+  public void close() {
+    refillExecutor.shutdownNow();
+    // Reservations that were queued or interrupted would otherwise never complete
+    for (AtomicReference<Block> stripe : stripes) {
+      CompletableFuture<Block> future = stripe.get().successor.get();
+      if (future != null) {
+        future.completeExceptionally(closed(null));
+      }
+    }
+  }
+
+  private static IllegalStateException closed(Throwable cause) {
+    return new IllegalStateException("Allocator has been closed.", cause);
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    int highestOneBit = Integer.highestOneBit(value);
+    return highestOneBit == value ? value : highestOneBit << 1;
+  }
+
+  private final class Block {
+    private final AtomicLong cursor;
+    private final long last;
+    private final long refillAt;
+    private final AtomicReference<CompletableFuture<Block>> successor = new AtomicReference<>();
+
+    private Block(long first, int size) {
+      this.cursor = new AtomicLong(first);
+      this.last = first + size - 1;
+      this.refillAt = first + size / 2;
+    }
+
+    private CompletableFuture<Block> reserveSuccessor() {
+      CompletableFuture<Block> future = successor.get();
+      if (future != null) {
+        return future;
+      }
+      CompletableFuture<Block> reserved = new CompletableFuture<>();
+      if (successor.compareAndSet(null, reserved)) {
+        try {
+          refillExecutor.execute(() -> reserve(reserved));
+        } catch (RejectedExecutionException e) {
+          reserved.completeExceptionally(closed(e));
+        }
+        return reserved;
+      }
+      return successor.get();
+    }
+
+    private void reserve(CompletableFuture<Block> reserved) {
+      try {
+        reserved.complete(new Block(idBlockSource.reserveBlock(blockSize), blockSize));
+      } catch (RuntimeException e) {
+        reserved.completeExceptionally(e);
+      }
+    }
+
+    private Block awaitSuccessor() {
+      CompletableFuture<Block> future = reserveSuccessor();
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        // Allow a later call to try again instead of failing forever on the same future
+        successor.compareAndSet(future, null);
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+}
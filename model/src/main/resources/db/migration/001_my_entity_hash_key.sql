@@ -0,0 +1,10 @@
+-- Gives every my_entity row the hash key that MyEntity returns as its hash code, drawn at random
+-- like for new entities. Apply before deploying a version that maps hash_key, tables that are
+-- generated by EclipseLink have it already.
+
+ALTER TABLE my_entity ADD COLUMN IF NOT EXISTS hash_key INTEGER;
+
+UPDATE my_entity SET hash_key = CAST(FLOOR(RAND() * 4294967296) - 2147483648 AS INTEGER)
+  WHERE hash_key IS NULL;
+
+ALTER TABLE my_entity ALTER COLUMN hash_key SET NOT NULL;
@@ -0,0 +1,19 @@
+-- Adds the payload_hash column that MyEntity maps for entities persisted through a
+-- DeduplicatingPayloadStore, along with its index, and the table of the store. Apply before
+-- deploying a version that maps payload_hash, schemas that are generated by EclipseLink have
+-- them already.
+
+ALTER TABLE my_entity ADD COLUMN IF NOT EXISTS payload_hash VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS ix_my_entity_payload_hash ON my_entity (payload_hash);
+
+CREATE SEQUENCE IF NOT EXISTS my_entity_shared_payload_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS my_entity_shared_payload (
+  id BIGINT NOT NULL,
+  payload_hash VARCHAR(64) NOT NULL,
+  reference_count BIGINT NOT NULL,
+  bytes BLOB NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_my_entity_shared_payload_hash UNIQUE (payload_hash)
+);
@@ -0,0 +1,18 @@
+-- Adds the table of the chunks that ChunkedPayloadStore writes, along with its sequence. The
+-- unique constraint also serves as the index by owner and chunk index, and deleting a my_entity
+-- row deletes its chunks. Apply before deploying a version that maps PayloadChunk, schemas that
+-- are generated by EclipseLink have them already.
+
+CREATE SEQUENCE IF NOT EXISTS my_entity_chunk_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS my_entity_chunk (
+  id BIGINT NOT NULL,
+  owner_id BIGINT NOT NULL,
+  chunk_index INTEGER NOT NULL,
+  chunk_length INTEGER NOT NULL,
+  bytes BLOB NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_my_entity_chunk_owner_index UNIQUE (owner_id, chunk_index),
+  CONSTRAINT fk_my_entity_chunk_owner FOREIGN KEY (owner_id) REFERENCES my_entity (id)
+    ON DELETE CASCADE
+);
@@ -0,0 +1,13 @@
+-- Adds the my_entity_seq sequence that MyEntity takes its ids from, instead of the default
+-- SEQ_GEN_SEQUENCE it used before. The sequence is restarted beyond the ids of existing rows, and
+-- never backwards if it has handed out ids already. A value of the sequence is the last id of a
+-- block, so the next block starts right after the largest id. Apply before deploying a version
+-- that maps my_entity_seq, schemas that are generated by EclipseLink have it already.
+
+CREATE SEQUENCE IF NOT EXISTS my_entity_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE my_entity_seq RESTART WITH (
+  SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM my_entity), CURRENT_VALUE) + INCREMENT
+  FROM INFORMATION_SCHEMA.SEQUENCES
+  WHERE SEQUENCE_SCHEMA = SCHEMA() AND SEQUENCE_NAME = 'MY_ENTITY_SEQ'
+);
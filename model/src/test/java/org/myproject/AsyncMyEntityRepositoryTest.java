@@ -0,0 +1,114 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class AsyncMyEntityRepositoryTest {
+  private EntityManagerFactory entityManagerFactory;
+
+  // System under test (SUT)
+  private AsyncMyEntityRepository asyncMyEntityRepository;
+
+  @Before
+  public void setUp() {
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "async-repository");
+    asyncMyEntityRepository = new AsyncMyEntityRepository(entityManagerFactory, 2, 1);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    asyncMyEntityRepository.close();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testSavesFindsAndDeletes() {
+    byte[] bytes = {1, 2, 3};
+
+    MyEntity saved = asyncMyEntityRepository.save(new MyEntity(bytes)).join();
+
+    assertThat(asyncMyEntityRepository.find(saved.getId()).join().get().getBytes(), is(bytes));
+    assertThat(asyncMyEntityRepository.delete(saved.getId()).join(), is(true));
+    assertThat(asyncMyEntityRepository.find(saved.getId()).join().isPresent(), is(false));
+    assertThat(asyncMyEntityRepository.delete(saved.getId()).join(), is(false));
+  }
+
+  @Test
+  public void testMergesSavedEntity() {
+    MyEntity saved = asyncMyEntityRepository.save(new MyEntity(new byte[] {1})).join();
+    saved.setBytes(new byte[] {2});
+
+    asyncMyEntityRepository.save(saved).join();
+
+    assertThat(asyncMyEntityRepository.find(saved.getId()).join().get().getBytes(),
+        is(new byte[] {2}));
+  }
+
+  @Test
+  public void testSavesFindsAndDeletesInBulk() {
+    List<MyEntity> myEntities = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      myEntities.add(new MyEntity(new byte[] {(byte) i}));
+    }
+
+    List<Long> ids = new ArrayList<>();
+    for (MyEntity saved : asyncMyEntityRepository.saveAll(myEntities).join()) {
+      ids.add(saved.getId());
+    }
+
+    List<MyEntity> found = asyncMyEntityRepository.findAll(ids).join();
+    assertThat(found.size(), is(20));
+    assertThat(found.get(19).getBytes(), is(new byte[] {19}));
+    assertThat(asyncMyEntityRepository.deleteAll(ids).join(), is(20));
+  }
+
+  @Test
+  public void testRejectsOperationsBeyondPendingLimit() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    List<CompletableFuture<Object>> blocking = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      blocking.add(asyncMyEntityRepository.execute(entityManager -> {
+        started.countDown();
+        Uninterruptibles.awaitUninterruptibly(release);
+        return null;
+      }));
+    }
+    started.await();
+    CompletableFuture<Boolean> pending = asyncMyEntityRepository.delete(-1L);
+
+    CompletableFuture<Boolean> rejected = asyncMyEntityRepository.delete(-1L);
+
+    assertThat(asyncMyEntityRepository.getPendingCount(), is(1));
+    try {
+      rejected.get();
+      fail("Expected a RejectedExecutionException");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+    }
+    release.countDown();
+    assertThat(pending.join(), is(false));
+    CompletableFuture.allOf(blocking.toArray(new CompletableFuture<?>[0])).join();
+    assertThat(asyncMyEntityRepository.getPendingCount(), is(0));
+  }
+}
@@ -0,0 +1,173 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class ChunkedPayloadStoreTest {
+  private static final int CHUNK_SIZE = 16;
+
+  private EntityManagerFactory entityManagerFactory;
+  private long ownerId;
+  private ExecutorService executor;
+  private byte[] payload;
+
+  // System under test (SUT)
+  private ChunkedPayloadStore chunkedPayloadStore;
+
+  @Before
+  public void setUp() {
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "chunked-payloads");
+    executor = Executors.newFixedThreadPool(4);
+    payload = new byte[100];
+    new Random(100).nextBytes(payload);
+    ownerId = persistOwner();
+    chunkedPayloadStore = new ChunkedPayloadStore(entityManagerFactory, CHUNK_SIZE);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testUploadsInParallelAndReadsRanges() throws IOException {
+    chunkedPayloadStore.upload(ownerId, new ByteArrayInputStream(payload), payload.length,
+        executor, 3);
+
+    assertThat(chunkedPayloadStore.length(ownerId), is(100L));
+    assertThat(chunkedPayloadStore.readRange(ownerId, 0, 100), is(payload));
+    assertThat(chunkedPayloadStore.readRange(ownerId, 10, 30),
+        is(Arrays.copyOfRange(payload, 10, 40)));
+    assertThat(chunkedPayloadStore.readRange(ownerId, 96, 4),
+        is(Arrays.copyOfRange(payload, 96, 100)));
+  }
+
+  @Test
+  public void testResumesUpload() throws IOException {
+    chunkedPayloadStore.writeChunk(ownerId, 0, Arrays.copyOfRange(payload, 0, 16));
+    chunkedPayloadStore.writeChunk(ownerId, 2, Arrays.copyOfRange(payload, 32, 48));
+
+    assertThat(chunkedPayloadStore.findMissingChunks(ownerId, payload.length),
+        contains(1, 3, 4, 5, 6));
+
+    chunkedPayloadStore.upload(ownerId, new ByteArrayInputStream(payload), payload.length,
+        executor, 2);
+
+    assertThat(chunkedPayloadStore.findMissingChunks(ownerId, payload.length).isEmpty(),
+        is(true));
+    assertThat(chunkedPayloadStore.readRange(ownerId, 0, 100), is(payload));
+  }
+
+  @Test
+  public void testReplacesChunk() {
+    chunkedPayloadStore.writeChunk(ownerId, 0, new byte[] {1, 2});
+
+    chunkedPayloadStore.writeChunk(ownerId, 0, new byte[] {3});
+
+    assertThat(chunkedPayloadStore.length(ownerId), is(1L));
+    assertThat(chunkedPayloadStore.readRange(ownerId, 0, 1), is(new byte[] {3}));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadsNoRangeOverMissingChunk() {
+    chunkedPayloadStore.writeChunk(ownerId, 0, Arrays.copyOfRange(payload, 0, 16));
+    chunkedPayloadStore.writeChunk(ownerId, 2, Arrays.copyOfRange(payload, 32, 48));
+
+    chunkedPayloadStore.readRange(ownerId, 8, 32);
+  }
+
+  @Test
+  public void testDeletesChunks() throws IOException {
+    chunkedPayloadStore.upload(ownerId, new ByteArrayInputStream(payload), payload.length,
+        executor, 3);
+
+    assertThat(chunkedPayloadStore.delete(ownerId), is(7));
+    assertThat(chunkedPayloadStore.length(ownerId), is(0L));
+  }
+
+  @Test
+  public void testDeletesChunksWithOwner() throws IOException {
+    chunkedPayloadStore.upload(ownerId, new ByteArrayInputStream(payload), payload.length,
+        executor, 3);
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.remove(entityManager.find(MyEntity.class, ownerId));
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+
+    assertThat(chunkedPayloadStore.length(ownerId), is(0L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUploadsNoChunksOfMissingOwner() throws IOException {
+    chunkedPayloadStore.upload(ownerId + 1, new ByteArrayInputStream(payload), payload.length,
+        executor, 3);
+  }
+
+  @Test
+  public void testWritesChunksReadBeforeStreamFailed() {
+    // Reads two chunks and half of the third one before failing
+    InputStream failingInputStream = new SequenceInputStream(
+        new ByteArrayInputStream(payload, 0, 2 * CHUNK_SIZE + CHUNK_SIZE / 2), new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("Connection reset");
+          }
+        });
+    Executor slowExecutor = command -> executor.execute(() -> {
+      Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+      command.run();
+    });
+
+    try {
+      chunkedPayloadStore.upload(ownerId, failingInputStream, payload.length, slowExecutor, 3);
+      fail("Upload should fail if the stream fails.");
+    } catch (IOException e) {
+      assertThat(chunkedPayloadStore.findMissingChunks(ownerId, payload.length),
+          contains(2, 3, 4, 5, 6));
+    }
+  }
+
+  private long persistOwner() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      MyEntity owner = new MyEntity();
+      entityManager.persist(owner);
+      entityManager.getTransaction().commit();
+      return owner.getId();
+    } finally {
+      entityManager.close();
+    }
+  }
+}
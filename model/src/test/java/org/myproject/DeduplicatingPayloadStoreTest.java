@@ -0,0 +1,138 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class DeduplicatingPayloadStoreTest {
+  private EntityManagerFactory entityManagerFactory;
+
+  // System under test (SUT)
+  private DeduplicatingPayloadStore deduplicatingPayloadStore;
+
+  @Before
+  public void setUp() {
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "shared-payloads");
+    deduplicatingPayloadStore = new DeduplicatingPayloadStore(entityManagerFactory);
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testStoresDuplicatesOnce() {
+    String hash = deduplicatingPayloadStore.add(new byte[] {1, 2, 3});
+
+    assertThat(deduplicatingPayloadStore.add(new byte[] {1, 2, 3}), is(hash));
+    assertThat(deduplicatingPayloadStore.getReferenceCount(hash), is(2L));
+    assertThat(deduplicatingPayloadStore.find(hash).get(), is(new byte[] {1, 2, 3}));
+    assertThat(countSharedPayloads(), is(1L));
+  }
+
+  @Test
+  public void testStoresDistinctPayloadsApart() {
+    String hash = deduplicatingPayloadStore.add(new byte[] {1, 2, 3});
+
+    String otherHash = deduplicatingPayloadStore.add(new byte[2048]);
+
+    assertThat(otherHash, is(not(hash)));
+    assertThat(deduplicatingPayloadStore.find(otherHash).get(), is(new byte[2048]));
+    assertThat(countSharedPayloads(), is(2L));
+  }
+
+  @Test
+  public void testRemovesPayloadOnLastRelease() {
+    String hash = deduplicatingPayloadStore.add(new byte[] {1, 2, 3});
+    deduplicatingPayloadStore.add(new byte[] {1, 2, 3});
+
+    assertThat(deduplicatingPayloadStore.release(hash), is(false));
+    assertThat(deduplicatingPayloadStore.release(hash), is(true));
+    assertThat(deduplicatingPayloadStore.find(hash), is(Optional.<byte[]>empty()));
+    assertThat(deduplicatingPayloadStore.getReferenceCount(hash), is(0L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReleasesNoUnknownPayload() {
+    deduplicatingPayloadStore.release(DeduplicatingPayloadStore.hashOf(new byte[] {1}));
+  }
+
+  @Test
+  public void testPersistsEntitiesWithSamePayloadThroughStore() {
+    MyEntity myEntity = deduplicatingPayloadStore.persist(new byte[] {1, 2, 3});
+    MyEntity otherMyEntity = deduplicatingPayloadStore.persist(new byte[] {1, 2, 3});
+
+    assertThat(otherMyEntity.getId(), is(not(myEntity.getId())));
+    assertThat(otherMyEntity.getPayloadHash(), is(myEntity.getPayloadHash()));
+    assertThat(deduplicatingPayloadStore.getReferenceCount(myEntity.getPayloadHash()), is(2L));
+    assertThat(countSharedPayloads(), is(1L));
+
+    MyEntity foundMyEntity = find(otherMyEntity.getId());
+    assertThat(foundMyEntity.getPayloadHash(), is(myEntity.getPayloadHash()));
+    assertThat(foundMyEntity.getBytes(), is(new byte[0]));
+    assertThat(deduplicatingPayloadStore.getBytes(foundMyEntity), is(new byte[] {1, 2, 3}));
+  }
+
+  @Test
+  public void testReleasesPayloadWhenEntitiesAreRemoved() {
+    MyEntity myEntity = deduplicatingPayloadStore.persist(new byte[] {1, 2, 3});
+    MyEntity otherMyEntity = deduplicatingPayloadStore.persist(new byte[] {1, 2, 3});
+    String hash = myEntity.getPayloadHash();
+
+    assertThat(deduplicatingPayloadStore.remove(myEntity.getId()), is(true));
+    assertThat(find(myEntity.getId()), is(nullValue()));
+    assertThat(deduplicatingPayloadStore.getReferenceCount(hash), is(1L));
+
+    assertThat(deduplicatingPayloadStore.remove(otherMyEntity.getId()), is(true));
+    assertThat(deduplicatingPayloadStore.find(hash), is(Optional.<byte[]>empty()));
+    assertThat(countSharedPayloads(), is(0L));
+
+    assertThat(deduplicatingPayloadStore.remove(otherMyEntity.getId()), is(false));
+  }
+
+  @Test
+  public void testReadsPayloadOfEntityNotPersistedThroughStore() {
+    assertThat(deduplicatingPayloadStore.getBytes(new MyEntity(new byte[] {1, 2, 3})),
+        is(new byte[] {1, 2, 3}));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReplacesNoSharedPayload() {
+    MyEntity myEntity = deduplicatingPayloadStore.persist(new byte[] {1, 2, 3});
+
+    myEntity.setBytes(new byte[] {4});
+  }
+
+  private MyEntity find(long id) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.find(MyEntity.class, id);
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private long countSharedPayloads() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.createQuery("SELECT COUNT(p) FROM SharedPayload p", Long.class)
+          .getSingleResult();
+    } finally {
+      entityManager.close();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myproject.persistence.JdbcConnections;
+import org.myproject.persistence.ModelSessionCustomizer;
+
+import com.google.common.io.Resources;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class MigrationTest {
+  private static final List<String> MIGRATIONS =
+      Arrays.asList("001_my_entity_hash_key.sql", "002_my_entity_payload_hash.sql",
+          "003_my_entity_chunk.sql", "004_my_entity_seq.sql");
+
+  // The table as it was generated before the migrations
+  private static final List<String> BASELINE = Arrays.asList(
+      "CREATE SEQUENCE SEQ_GEN_SEQUENCE START WITH 1 INCREMENT BY 50",
+      "CREATE TABLE my_entity (id BIGINT NOT NULL, bytes BLOB NOT NULL, PRIMARY KEY (id))",
+      "INSERT INTO my_entity (id, bytes) VALUES (1001, X'01'), (1002, X'02')");
+
+  private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void setUp() {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("eclipselink.ddl-generation", "none");
+    // Preallocates as many ids as the sequences of the migrations are incremented by
+    properties.put(ModelSessionCustomizer.SEQUENCE_PREALLOCATION_SIZE, 50);
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "migration", properties);
+    execute(BASELINE);
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testGivesExistingRowsHashKeys() throws IOException {
+    migrate();
+
+    MyEntity myEntity = find(1001L);
+    assertThat(myEntity.getBytes(), is(new byte[] {1}));
+    assertThat(find(1001L), is(myEntity));
+    assertThat(find(1001L).hashCode(), is(myEntity.hashCode()));
+    assertThat(find(1002L).hashCode(), is(not(myEntity.hashCode())));
+  }
+
+  @Test
+  public void testPersistsAfterMigration() throws IOException {
+    migrate();
+
+    MyEntity myEntity = Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      MyEntity persisted = new MyEntity(new byte[] {3});
+      entityManager.persist(persisted);
+      return persisted;
+    });
+
+    assertThat(find(myEntity.getId()), is(myEntity));
+    assertThat(myEntity.getId(), is(greaterThan(1002L)));
+  }
+
+  @Test
+  public void testPersistsThroughDeduplicatingPayloadStoreAfterMigration() throws IOException {
+    migrate();
+
+    MyEntity myEntity =
+        new DeduplicatingPayloadStore(entityManagerFactory).persist(new byte[] {1, 2, 3});
+
+    assertThat(find(myEntity.getId()).getPayloadHash(), is(myEntity.getPayloadHash()));
+  }
+
+  @Test
+  public void testStoresChunksAfterMigration() throws IOException {
+    migrate();
+    ChunkedPayloadStore chunkedPayloadStore = new ChunkedPayloadStore(entityManagerFactory, 2);
+
+    chunkedPayloadStore.writeChunk(1001L, 0, new byte[] {1, 2});
+    chunkedPayloadStore.writeChunk(1001L, 1, new byte[] {3});
+
+    assertThat(chunkedPayloadStore.readRange(1001L, 1, 2), is(new byte[] {2, 3}));
+    execute(Arrays.asList("DELETE FROM my_entity WHERE id = 1001"));
+    assertThat(chunkedPayloadStore.length(1001L), is(0L));
+  }
+
+  @Test
+  public void testMigratesMigratedTable() throws IOException {
+    migrate();
+    int hashCode = find(1001L).hashCode();
+
+    migrate();
+
+    assertThat(find(1001L).hashCode(), is(hashCode));
+  }
+
+  private void migrate() throws IOException {
+    for (String migration : MIGRATIONS) {
+      String script = Resources.toString(
+          Resources.getResource("db/migration/" + migration), StandardCharsets.UTF_8);
+      execute(Arrays.asList(script.replaceAll("(?m)^--.*$", "").split(";")));
+    }
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  private void execute(List<String> sqls) {
+    Transactions.inTransaction(entityManagerFactory, entityManager -> {
+      try (Statement statement = JdbcConnections.of(entityManager).createStatement()) {
+        for (String sql : sqls) {
+          if (sql.trim().isEmpty() == false) {
+            statement.execute(sql);
+          }
+        }
+        return null;
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private MyEntity find(long id) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.find(MyEntity.class, id);
+    } finally {
+      entityManager.close();
+    }
+  }
+}
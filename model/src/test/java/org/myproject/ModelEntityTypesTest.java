@@ -0,0 +1,144 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.persistence.Basic;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.junit.Test;
+
+import test.validator.EntityTypeValidator;
+import test.validator.EntityValidationEngine;
+import test.validator.EntityValidationReport;
+import test.validator.PerformanceRules;
+import test.validator.RuleViolation;
+import test.validator.Severity;
+
+public class ModelEntityTypesTest {
+
+  // System under test (SUT)
+  private final EntityValidationEngine entityValidationEngine = new EntityValidationEngine();
+
+  @Test
+  public void testAllEntityTypesAreValid() throws Exception {
+    Path classesDirectory =
+        Paths.get(MyEntity.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+    EntityValidationReport entityValidationReport =
+        entityValidationEngine.validate(classesDirectory);
+
+    assertThat(entityValidationReport.toString(), entityValidationReport.isValid(), is(true));
+    assertThat(entityValidationReport.getValidatedClassCount(), is(greaterThanOrEqualTo(1)));
+  }
+
+  @Test
+  public void testAllEntityTypesPerform() throws Exception {
+    Path classesDirectory =
+        Paths.get(MyEntity.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    EntityValidationEngine performanceValidationEngine = new EntityValidationEngine(
+        ForkJoinPool.commonPool(), Thread.currentThread().getContextClassLoader(),
+        new EntityTypeValidator(PerformanceRules.all()));
+
+    EntityValidationReport entityValidationReport =
+        performanceValidationEngine.validate(classesDirectory);
+
+    assertThat(entityValidationReport.toString(), entityValidationReport.isValid(), is(true));
+  }
+
+  @Test
+  public void testValidatesDuplicateEntityTypesOnce() {
+    EntityValidationReport entityValidationReport =
+        entityValidationEngine.validate(Arrays.asList(MyEntity.class, MyEntity.class));
+
+    assertThat(entityValidationReport.toString(), entityValidationReport.isValid(), is(true));
+    assertThat(entityValidationReport.getValidatedClassCount(), is(1));
+  }
+
+  @Test
+  public void testReportsPoorlyPerformingMappings() {
+    List<RuleViolation> ruleViolations =
+        new EntityTypeValidator(PerformanceRules.all()).validate(PoorlyMapped.class);
+
+    assertThat(warningsOf(ruleViolations), contains(
+        "lob field [bytes] should be fetched lazily",
+        "sequence generator [poorly_mapped_seq] should allocate at least [2] values but allocated"
+            + " [1]",
+        "collection field [children] should be fetched lazily",
+        "foreign key column [parent_id] of field [parent] should be indexed"));
+  }
+
+  @Test
+  public void testReportsNoWellPerformingMappings() {
+    List<RuleViolation> ruleViolations =
+        new EntityTypeValidator(PerformanceRules.all()).validate(WellMapped.class);
+
+    assertThat(warningsOf(ruleViolations).isEmpty(), is(true));
+  }
+
+  private static List<String> warningsOf(List<RuleViolation> ruleViolations) {
+    List<String> warnings = new ArrayList<>();
+    for (RuleViolation ruleViolation : ruleViolations) {
+      if (ruleViolation.getSeverity() == Severity.WARNING) {
+        warnings.add(ruleViolation.getMessage());
+      }
+    }
+    return warnings;
+  }
+
+  // Not annotated as entities, so they are neither compiled nor deployed as such
+  static class PoorlyMapped {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "poorly_mapped_seq")
+    @SequenceGenerator(name = "poorly_mapped_seq", allocationSize = 1)
+    private Long id;
+
+    @Lob
+    private byte[] bytes;
+
+    @OneToMany(mappedBy = "parent", fetch = FetchType.EAGER)
+    private Set<PoorlyMapped> children;
+
+    @ManyToOne
+    private PoorlyMapped parent;
+  }
+
+  @Table(indexes = @Index(columnList = "parent_key ASC, id"))
+  static class WellMapped {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "well_mapped_seq")
+    @SequenceGenerator(name = "well_mapped_seq")
+    private Long id;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    private byte[] bytes;
+
+    @OneToMany(mappedBy = "parent")
+    private Set<WellMapped> children;
+
+    @ManyToOne
+    @JoinColumn(name = "PARENT_KEY")
+    private WellMapped parent;
+  }
+}
@@ -0,0 +1,197 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class MyEntityArchiveTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private EntityManagerFactory sourceEntityManagerFactory;
+  private EntityManagerFactory targetEntityManagerFactory;
+  private ExecutorService executor;
+  private Path file;
+
+  // System under test (SUT)
+  private MyEntityArchive sourceArchive;
+  private MyEntityArchive targetArchive;
+
+  @Before
+  public void setUp() throws IOException {
+    sourceEntityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "archive-source");
+    targetEntityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "archive-target");
+    executor = Executors.newFixedThreadPool(3);
+    file = temporaryFolder.newFile("my_entity.archive").toPath();
+    sourceArchive = new MyEntityArchive(sourceEntityManagerFactory, 50);
+    targetArchive = new MyEntityArchive(targetEntityManagerFactory, 50);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    sourceEntityManagerFactory.close();
+    targetEntityManagerFactory.close();
+  }
+
+  @Test
+  public void testExportsAndImportsAllRows() throws IOException {
+    List<MyEntity> myEntities = persist(sourceEntityManagerFactory, 230);
+
+    assertThat(sourceArchive.exportTo(file), is(230L));
+    assertThat(targetArchive.importFrom(file, executor, 3), is(230L));
+
+    EntityManager entityManager = targetEntityManagerFactory.createEntityManager();
+    try {
+      for (MyEntity myEntity : myEntities) {
+        MyEntity imported = entityManager.find(MyEntity.class, myEntity.getId());
+        assertThat(imported.getBytes(), is(myEntity.getBytes()));
+        assertThat(imported, is(myEntity));
+        assertThat(imported.hashCode(), is(myEntity.hashCode()));
+      }
+      assertThat(entityManager.createQuery("SELECT COUNT(e) FROM MyEntity e", Long.class)
+          .getSingleResult(), is(230L));
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExportsNoRowsReferringToSharedPayloads() throws IOException {
+    persist(sourceEntityManagerFactory, 2);
+    new DeduplicatingPayloadStore(sourceEntityManagerFactory).persist(new byte[] {1, 2, 3});
+
+    sourceArchive.exportTo(file);
+  }
+
+  @Test
+  public void testExportsEmptyTable() throws IOException {
+    assertThat(sourceArchive.exportTo(file), is(0L));
+    assertThat(Files.size(file), is(8L));
+    assertThat(targetArchive.importFrom(file, executor, 1), is(0L));
+  }
+
+  @Test(expected = IOException.class)
+  public void testImportsNoOtherFile() throws IOException {
+    Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+    targetArchive.importFrom(file, executor, 1);
+  }
+
+  @Test(expected = IOException.class)
+  public void testImportsNoTruncatedArchive() throws IOException {
+    persist(sourceEntityManagerFactory, 3);
+    sourceArchive.exportTo(file);
+    byte[] archive = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(archive, archive.length - 1));
+
+    targetArchive.importFrom(file, executor, 1);
+  }
+
+  @Test
+  public void testPersistsIntoTargetAfterImport() throws IOException {
+    List<MyEntity> myEntities = persist(sourceEntityManagerFactory, 230);
+    sourceArchive.exportTo(file);
+    targetArchive.importFrom(file, executor, 3);
+
+    List<MyEntity> persisted = persist(targetEntityManagerFactory, 600);
+
+    long maxImportedId = myEntities.get(myEntities.size() - 1).getId();
+    for (MyEntity myEntity : persisted) {
+      assertThat(myEntity.getId(), is(greaterThan(maxImportedId)));
+    }
+    assertThat(count(targetEntityManagerFactory), is(830L));
+  }
+
+  @Test(expected = IOException.class)
+  public void testImportsNoRecordWithOverflowingLength() throws IOException {
+    sourceArchive.exportTo(file);
+    // Added up in an int, the header and the length wrap around to less than the bytes that follow
+    ByteBuffer record = ByteBuffer.allocate(16 + 16)
+        .putLong(1L).putInt(0).putInt(Integer.MAX_VALUE);
+    Files.write(file, record.array(), StandardOpenOption.APPEND);
+
+    targetArchive.importFrom(file, executor, 1);
+  }
+
+  @Test
+  public void testInsertsBatchesReadBeforeArchiveFailed() throws IOException {
+    persist(sourceEntityManagerFactory, 120);
+    sourceArchive.exportTo(file);
+    // Appends a record with a negative payload length, after two batches and part of a third one
+    ByteBuffer record = ByteBuffer.allocate(16).putLong(1L).putInt(0).putInt(-1);
+    Files.write(file, record.array(), StandardOpenOption.APPEND);
+    Executor slowExecutor = command -> executor.execute(() -> {
+      Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+      command.run();
+    });
+
+    try {
+      targetArchive.importFrom(file, slowExecutor, 3);
+      fail("Import should fail if the archive is corrupt.");
+    } catch (IOException e) {
+      assertThat(count(targetEntityManagerFactory), is(100L));
+    }
+  }
+
+  private static long count(EntityManagerFactory entityManagerFactory) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.createQuery("SELECT COUNT(e) FROM MyEntity e", Long.class)
+          .getSingleResult();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private static List<MyEntity> persist(EntityManagerFactory entityManagerFactory, int count) {
+    Random random = new Random(count);
+    List<MyEntity> myEntities = new ArrayList<>();
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      for (int i = 0; i < count; i++) {
+        // Larger payloads are stored compressed, the archive copies them as they are
+        byte[] bytes = new byte[i % 2 == 0 ? 16 : 1024];
+        random.nextBytes(bytes);
+        MyEntity myEntity = new MyEntity(bytes);
+        entityManager.persist(myEntity);
+        myEntities.add(myEntity);
+      }
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+    return myEntities;
+  }
+}
@@ -0,0 +1,83 @@
+package org.myproject;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import test.reflect.ReflectionTestUtils;
+
+public class MyEntityBatchTest {
+
+  // System under test (SUT)
+  private MyEntityBatch myEntityBatch;
+
+  @Before
+  public void setUp() throws Exception {
+    myEntityBatch = new MyEntityBatch();
+  }
+
+  @Test
+  public void testKeepsInstancesOnceInOrder() {
+    MyEntity myEntity = new MyEntity();
+    MyEntity otherMyEntity = new MyEntity();
+
+    assertThat(myEntityBatch.add(myEntity), is(true));
+    assertThat(myEntityBatch.add(otherMyEntity), is(true));
+    assertThat(myEntityBatch.add(myEntity), is(false));
+
+    assertThat(myEntityBatch, contains(myEntity, otherMyEntity));
+    assertThat(myEntityBatch.contains(otherMyEntity), is(true));
+    assertThat(myEntityBatch.contains(new MyEntity()), is(false));
+  }
+
+  @Test
+  public void testKeepsInstancesOfSameEntityApart() {
+    MyEntity myEntity = withId(new MyEntity(), 1L);
+    MyEntity otherMyEntity = loadedAgain(myEntity);
+
+    myEntityBatch.add(myEntity);
+
+    assertThat(otherMyEntity.equals(myEntity), is(true));
+    assertThat(otherMyEntity.hashCode(), is(myEntity.hashCode()));
+    assertThat(myEntityBatch.add(otherMyEntity), is(true));
+    assertThat(myEntityBatch.size(), is(2));
+  }
+
+  @Test
+  public void testIndexesById() {
+    MyEntity myEntity = withId(new MyEntity(), 2L);
+    MyEntity otherMyEntity = withId(new MyEntity(), 1L);
+    myEntityBatch.addAll(Arrays.asList(myEntity, new MyEntity(), otherMyEntity));
+
+    Map<Long, MyEntity> index = myEntityBatch.indexById();
+
+    assertThat(index.keySet(), contains(2L, 1L));
+    assertThat(index.get(1L) == otherMyEntity, is(true));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIndexesNoInstancesOfSameEntity() {
+    myEntityBatch.add(withId(new MyEntity(), 1L));
+    myEntityBatch.add(withId(new MyEntity(), 1L));
+
+    myEntityBatch.indexById();
+  }
+
+  private static MyEntity withId(MyEntity myEntity, Long id) {
+    ReflectionTestUtils.setField(myEntity, Long.class, id);
+    return myEntity;
+  }
+
+  // Another instance of the same row, which has its id and its hash key
+  private static MyEntity loadedAgain(MyEntity myEntity) {
+    MyEntity loaded = withId(new MyEntity(), myEntity.getId());
+    ReflectionTestUtils.setField(loaded, int.class, myEntity.hashCode());
+    return loaded;
+  }
+}
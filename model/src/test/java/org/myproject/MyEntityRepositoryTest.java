@@ -0,0 +1,379 @@
+package org.myproject;
+
+import static test.matchers.MoreMatchers.allocatesAtMost;
+import static test.matchers.MoreMatchers.completesWithin;
+import static test.matchers.MoreMatchers.issuedNoLobSelects;
+import static test.matchers.MoreMatchers.issuedNoNPlusOneSelects;
+import static test.matchers.MoreMatchers.issuedStatements;
+import static test.matchers.MoreMatchers.issuedWritesInBatchesOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.mappings.foundation.AbstractDirectMapping;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.myproject.payload.PayloadCompression;
+import org.myproject.persistence.JdbcConnections;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+
+import test.categories.LatencyBudget;
+import test.jpa.AbstractJPARolledBackTestCase;
+import test.jpa.SqlCapture;
+
+public class MyEntityRepositoryTest extends AbstractJPARolledBackTestCase {
+
+  // System under test (SUT)
+  private MyEntityRepository myEntityRepository;
+
+  @Override
+  protected String getPersistenceUnitName() {
+    return "appserverTestPU";
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    myEntityRepository = new MyEntityRepository(entityManager);
+  }
+
+  @Test
+  public void testStreamsBytesBack() throws IOException {
+    byte[] bytes = randomBytes(4096);
+
+    long id = myEntityRepository.persist(new ByteArrayInputStream(bytes), bytes.length);
+
+    try (InputStream inputStream = myEntityRepository.openBytesStream(id)) {
+      assertThat(ByteStreams.toByteArray(inputStream), is(bytes));
+    }
+  }
+
+  @Test
+  public void testStreamsBytesThroughChannels() throws IOException {
+    byte[] bytes = randomBytes(1024);
+
+    long id = myEntityRepository.persist(Channels.newChannel(new ByteArrayInputStream(bytes)),
+        bytes.length);
+
+    try (InputStream inputStream =
+        Channels.newInputStream(myEntityRepository.openBytesChannel(id))) {
+      assertThat(ByteStreams.toByteArray(inputStream), is(bytes));
+    }
+  }
+
+  @Test
+  public void testFindsStreamedBytes() {
+    byte[] bytes = randomBytes(2048);
+
+    long id = myEntityRepository.persist(new ByteArrayInputStream(bytes), bytes.length);
+    flushAndClear();
+
+    assertThat(entityManager.find(MyEntity.class, id).getBytes(), is(bytes));
+  }
+
+  @Test
+  public void testReplacesBytesOfManagedEntity() throws IOException {
+    MyEntity myEntity = new MyEntity();
+    entityManager.persist(myEntity);
+    byte[] bytes = randomBytes(512);
+
+    myEntityRepository.writeBytes(myEntity.getId(), new ByteArrayInputStream(bytes),
+        bytes.length);
+
+    assertThat(entityManager.contains(myEntity), is(false));
+    try (InputStream inputStream = myEntityRepository.openBytesStream(myEntity.getId())) {
+      assertThat(ByteStreams.toByteArray(inputStream), is(bytes));
+    }
+  }
+
+  @Test(expected = EntityNotFoundException.class)
+  public void testOpensNoStreamForUnknownId() {
+    myEntityRepository.openBytesStream(-1L);
+  }
+
+  @Test
+  public void testStreamsNoSharedBytes() {
+    MyEntity myEntity = MyEntity.referencing(DeduplicatingPayloadStore.hashOf(new byte[] {1}));
+    entityManager.persist(myEntity);
+    entityManager.flush();
+
+    try {
+      myEntityRepository.writeBytes(myEntity.getId(), new ByteArrayInputStream(new byte[2]), 2);
+      fail("Replacing a shared payload should fail.");
+    } catch (IllegalStateException e) {
+      assertThat(myEntityRepository.exists(myEntity.getId()), is(true));
+    }
+    try {
+      myEntityRepository.openBytesStream(myEntity.getId());
+      fail("Streaming a shared payload should fail.");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), containsString("is shared"));
+    }
+  }
+
+  @Test
+  public void testFailsToReadCorruptBytes() throws SQLException {
+    byte[] bytes = randomBytes(512);
+    long id = myEntityRepository.persist(new ByteArrayInputStream(bytes), bytes.length);
+    byte[] encoded = PayloadCompression.encode(bytes, Integer.MAX_VALUE);
+    try (PreparedStatement statement = JdbcConnections.of(entityManager)
+        .prepareStatement("UPDATE my_entity SET bytes = ? WHERE id = ?")) {
+      statement.setBytes(1, Arrays.copyOf(encoded, encoded.length - 1));
+      statement.setLong(2, id);
+      statement.executeUpdate();
+    }
+
+    try (InputStream inputStream = myEntityRepository.openBytesStream(id)) {
+      ByteStreams.toByteArray(inputStream);
+      fail("Reading a stream of corrupt bytes should fail.");
+    } catch (IOException e) {
+      // Expected
+    }
+    try {
+      entityManager.find(MyEntity.class, id).getBytes();
+      fail("Reading corrupt bytes should fail.");
+    } catch (RuntimeException e) {
+      assertThat(Throwables.getRootCause(e), is(instanceOf(IllegalStateException.class)));
+    }
+  }
+
+  @Test
+  public void testPersistsAllInChunks() {
+    List<MyEntity> myEntities = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      myEntities.add(new MyEntity(randomBytes(16)));
+    }
+
+    assertThat(myEntityRepository.persistAll(myEntities, 100), is(250));
+
+    assertThat(entityManager.contains(myEntities.get(249)), is(false));
+    assertThat(myEntityRepository.count(), is(250L));
+    assertThat(entityManager.find(MyEntity.class, myEntities.get(42).getId()).getBytes(),
+        is(myEntities.get(42).getBytes()));
+  }
+
+  @Test
+  public void testPersistsAllInBatches() {
+    List<MyEntity> myEntities = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      myEntities.add(new MyEntity(randomBytes(16)));
+    }
+
+    SqlCapture sqlCapture = captureSql(() -> myEntityRepository.persistAll(myEntities, 100));
+
+    assertThat(sqlCapture, is(issuedStatements(3)));
+    assertThat(sqlCapture, is(issuedWritesInBatchesOf(100)));
+  }
+
+  @Test
+  public void testPersistsWithinBudget() {
+    assertThat(() -> entityManager.persist(new MyEntity()), allocatesAtMost(32 * 1024));
+  }
+
+  @Test
+  @Category(LatencyBudget.class)
+  public void testPersistsWithinLatencyBudget() {
+    // Persists into a fresh context every run, a growing one makes later runs slower
+    assertThat(() -> {
+      entityManager.persist(new MyEntity());
+      entityManager.clear();
+    }, completesWithin(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testStreamsAllWithoutSelectPerEntity() {
+    myEntityRepository.persistAll(Arrays.asList(new MyEntity(), new MyEntity(), new MyEntity()), 3);
+
+    SqlCapture sqlCapture = captureSql(() -> {
+      try (Stream<MyEntity> stream = myEntityRepository.streamAll(10)) {
+        stream.forEach(MyEntity::getBytes);
+      }
+    });
+
+    assertThat(sqlCapture, is(issuedNoNPlusOneSelects()));
+    assertThat(sqlCapture, is(issuedStatements(1)));
+  }
+
+  @Test
+  public void testDetectsSelectPerEntity() {
+    myEntityRepository.persistAll(Arrays.asList(new MyEntity(), new MyEntity(), new MyEntity()), 3);
+
+    SqlCapture sqlCapture = captureSql(() -> {
+      for (MyEntity myEntity : entityManager
+          .createQuery("SELECT e FROM MyEntity e", MyEntity.class).getResultList()) {
+        myEntity.getBytes();
+      }
+    });
+
+    assertThat(sqlCapture, is(not(issuedNoNPlusOneSelects())));
+    assertThat(sqlCapture, is(not(issuedNoLobSelects())));
+    assertThat(sqlCapture, is(issuedStatements(4)));
+  }
+
+  @Test
+  public void testFindsIdsWithoutSelectingBytes() {
+    myEntityRepository.persistAll(Arrays.asList(new MyEntity(), new MyEntity()), 2);
+
+    SqlCapture sqlCapture = captureSql(() -> myEntityRepository.findIds(0, 10));
+
+    assertThat(sqlCapture, is(issuedNoLobSelects()));
+    assertThat(sqlCapture, is(issuedStatements(1)));
+  }
+
+  @Test
+  public void testStreamsAllInOrder() {
+    List<MyEntity> myEntities = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      myEntities.add(new MyEntity(randomBytes(16 + i)));
+    }
+    myEntityRepository.persistAll(myEntities, 10);
+
+    List<Long> ids = new ArrayList<>();
+    try (Stream<MyEntity> stream = myEntityRepository.streamAll(10)) {
+      stream.forEach(myEntity -> {
+        assertThat(myEntity.getBytes(), is(myEntities.get(ids.size()).getBytes()));
+        ids.add(myEntity.getId());
+      });
+    }
+
+    assertThat(ids.size(), is(25));
+    assertThat(ids.get(24), is(myEntities.get(24).getId()));
+  }
+
+  @Test
+  public void testStreamsAllWithBoundedPersistenceContext() {
+    myEntityRepository.persistAll(Arrays.asList(new MyEntity(), new MyEntity(), new MyEntity()), 3);
+    byte[] bytes = randomBytes(32);
+
+    try (Stream<MyEntity> stream = myEntityRepository.streamAll(2)) {
+      Iterator<MyEntity> iterator = stream.iterator();
+      MyEntity first = iterator.next();
+      first.setBytes(bytes);
+      iterator.next();
+      MyEntity third = iterator.next();
+
+      assertThat(entityManager.contains(first), is(false));
+      assertThat(entityManager.contains(third), is(true));
+      entityManager.clear();
+      assertThat(entityManager.find(MyEntity.class, first.getId()).getBytes(), is(bytes));
+    }
+  }
+
+  @Test
+  public void testFindsEntityWithoutLoadingBytes() {
+    MyEntity myEntity = new MyEntity();
+    entityManager.persist(myEntity);
+    flushAndClear();
+
+    MyEntity found = entityManager.find(MyEntity.class, myEntity.getId());
+
+    assertThat(entityManager.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(found,
+        MyEntity_.bytes.getName()), is(false));
+  }
+
+  @Test
+  public void testTracksReplacedBytes() {
+    MyEntity myEntity = new MyEntity(randomBytes(64));
+    entityManager.persist(myEntity);
+    flushAndClear();
+    byte[] bytes = randomBytes(128);
+
+    entityManager.find(MyEntity.class, myEntity.getId()).setBytes(bytes);
+    flushAndClear();
+
+    assertThat(entityManager.find(MyEntity.class, myEntity.getId()).getBytes(), is(bytes));
+  }
+
+  @Test
+  public void testKeepsEqualityAndHashCodeWhenPersistedAndLoaded() {
+    MyEntity myEntity = new MyEntity(randomBytes(64));
+    int hashCode = myEntity.hashCode();
+
+    entityManager.persist(myEntity);
+    flushAndClear();
+
+    MyEntity loaded = entityManager.find(MyEntity.class, myEntity.getId());
+    assertThat(myEntity.hashCode(), is(hashCode));
+    assertThat(loaded == myEntity, is(false));
+    assertThat(loaded, is(myEntity));
+    assertThat(loaded.hashCode(), is(hashCode));
+  }
+
+  @Test
+  public void testTracksChangesOfAttributes() {
+    ClassDescriptor descriptor = JpaHelper.getEntityManager(entityManager).getServerSession()
+        .getDescriptor(MyEntity.class);
+
+    assertThat(descriptor.getObjectChangePolicy().isAttributeChangeTrackingPolicy(), is(true));
+    assertThat(((AbstractDirectMapping) descriptor
+        .getMappingForAttributeName(MyEntity_.bytes.getName())).isMutable(), is(false));
+  }
+
+  @Test
+  public void testChecksExistence() {
+    MyEntity myEntity = new MyEntity();
+    entityManager.persist(myEntity);
+    flushAndClear();
+
+    assertThat(myEntityRepository.exists(myEntity.getId()), is(true));
+    assertThat(myEntityRepository.exists(-1L), is(false));
+  }
+
+  @Test
+  public void testFindsIdsAndProjections() {
+    MyEntity first = new MyEntity();
+    MyEntity second = new MyEntity();
+    entityManager.persist(first);
+    entityManager.persist(second);
+    flushAndClear();
+
+    assertThat(myEntityRepository.count(), is(2L));
+    assertThat(myEntityRepository.findIds(0, 10), contains(first.getId(), second.getId()));
+
+    List<IdView> idViews = myEntityRepository.findProjections(IdView.class, MyEntity_.id);
+    assertThat(idViews.get(1).id, is(second.getId()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testProjectsNoBytes() {
+    myEntityRepository.findProjections(IdView.class, MyEntity_.bytes);
+  }
+
+  public static class IdView {
+    private final Long id;
+
+    public IdView(Long id) {
+      this.id = id;
+    }
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -1,14 +1,27 @@
 package org.myproject;
 
+import static test.matchers.MoreMatchers.allocatesAtMost;
+import static test.matchers.MoreMatchers.completesWithin;
+import static test.matchers.MoreMatchers.performantEntityType;
 import static test.matchers.MoreMatchers.valid;
 import static test.matchers.MoreMatchers.validEntityType;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
 
+import test.categories.LatencyBudget;
 import test.reflect.ReflectionTestUtils;
 
 public class MyEntityTest {
@@ -26,6 +39,11 @@ public class MyEntityTest {
     assertThat(MyEntity.class, is(validEntityType()));
   }
 
+  @Test
+  public void testEntityTypePerforms() {
+    assertThat(MyEntity.class, is(performantEntityType()));
+  }
+
   @Test
   public void testValidates() {
     assertThat(myEntity, is(valid()));
@@ -37,4 +55,64 @@ public class MyEntityTest {
 
     assertThat(myEntity, is(not(valid())));
   }
+
+  @Test
+  public void testValidatesWithinBudget() {
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    assertThat(() -> validator.validate(myEntity), allocatesAtMost(16 * 1024));
+  }
+
+  @Test
+  @Category(LatencyBudget.class)
+  public void testValidatesWithinLatencyBudget() {
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    assertThat(() -> validator.validate(myEntity), completesWithin(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testSetsFieldWithinBudget() {
+    byte[] bytes = new byte[0];
+
+    assertThat(() -> ReflectionTestUtils.setField(myEntity, byte[].class, bytes),
+        allocatesAtMost(256));
+  }
+
+  @Test
+  public void testExceedsAllocationBudget() {
+    assertThat(() -> myEntity.setBytes(new byte[64 * 1024]), not(allocatesAtMost(32 * 1024)));
+  }
+
+  @Test
+  public void testSpreadsHashCodesOfNewEntities() {
+    Set<Integer> hashCodes = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      hashCodes.add(new MyEntity().hashCode());
+    }
+
+    assertThat(hashCodes.size(), is(greaterThan(990)));
+  }
+
+  @Test
+  public void testKeepsHashCodeWhenIdIsAssigned() {
+    int hashCode = myEntity.hashCode();
+
+    ReflectionTestUtils.setField(myEntity, Long.class, 1L);
+
+    assertThat(myEntity.hashCode(), is(hashCode));
+  }
+
+  @Test
+  public void testEqualsById() {
+    MyEntity otherMyEntity = new MyEntity();
+
+    assertThat(myEntity.equals(myEntity), is(true));
+    assertThat(myEntity.equals(otherMyEntity), is(false));
+
+    ReflectionTestUtils.setField(myEntity, Long.class, 1L);
+    ReflectionTestUtils.setField(otherMyEntity, Long.class, 1L);
+
+    assertThat(myEntity.equals(otherMyEntity), is(true));
+  }
 }
@@ -0,0 +1,67 @@
+package org.myproject.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  // System under test (SUT)
+  private LatencyHistogram latencyHistogram;
+
+  @Before
+  public void setUp() {
+    latencyHistogram = new LatencyHistogram();
+  }
+
+  @Test
+  public void testSnapshotsNothingRecorded() {
+    LatencySnapshot latencySnapshot = latencyHistogram.snapshot();
+
+    assertThat(latencySnapshot.getCount(), is(0L));
+    assertThat(latencySnapshot.getP99Nanos(), is(0L));
+  }
+
+  @Test
+  public void testReportsPercentilesWithinABucket() {
+    for (long nanos = 1; nanos <= 1000; nanos++) {
+      latencyHistogram.record(nanos * 1000);
+    }
+
+    LatencySnapshot latencySnapshot = latencyHistogram.snapshot();
+
+    assertThat(latencySnapshot.getCount(), is(1000L));
+    assertThat(latencySnapshot.getMaxNanos(), is(1000000L));
+    assertThat(latencySnapshot.getMeanNanos(), is(500500L));
+    assertThat(withinBucketOf(latencySnapshot.getP50Nanos(), 500000L), is(true));
+    assertThat(withinBucketOf(latencySnapshot.getP99Nanos(), 990000L), is(true));
+    assertThat(latencySnapshot.valueAtPercentile(100), is(1000000L));
+  }
+
+  @Test
+  public void testBucketsAreContiguous() {
+    for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; bucket++) {
+      long lowerBound = LatencyHistogram.upperBoundOf(bucket - 1) + 1;
+
+      assertThat(LatencyHistogram.bucketOf(lowerBound), is(bucket));
+      assertThat(LatencyHistogram.bucketOf(LatencyHistogram.upperBoundOf(bucket)), is(bucket));
+    }
+    assertThat(LatencyHistogram.upperBoundOf(LatencyHistogram.BUCKETS - 1), is(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testResets() {
+    latencyHistogram.record(42);
+
+    latencyHistogram.reset();
+
+    assertThat(latencyHistogram.snapshot().getCount(), is(0L));
+    assertThat(latencyHistogram.snapshot().getMaxNanos(), is(0L));
+  }
+
+  private static boolean withinBucketOf(long reported, long expected) {
+    return reported >= expected && reported <= expected + expected / LatencyHistogram.SUB_BUCKETS;
+  }
+}
@@ -0,0 +1,117 @@
+package org.myproject.metrics;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.myproject.MyEntity;
+import org.myproject.metrics.PersistenceMetrics.Operation;
+
+import test.jpa.AbstractJPARolledBackTestCase;
+
+public class PersistenceMetricsTest extends AbstractJPARolledBackTestCase {
+  private static final String ENTITY_NAME = "MyEntity";
+
+  // System under test (SUT)
+  private PersistenceMetrics persistenceMetrics;
+
+  @Override
+  protected String getPersistenceUnitName() {
+    return "appserverTestPU";
+  }
+
+  @Before
+  public void setUp() {
+    persistenceMetrics = PersistenceMetrics.of(entityManager.getEntityManagerFactory());
+    persistenceMetrics.reset();
+  }
+
+  @Test
+  public void testRecordsPersistAndFlush() {
+    entityManager.persist(new MyEntity(randomBytes(1024)));
+    entityManager.flush();
+
+    PersistenceMetricsSnapshot snapshot = persistenceMetrics.getSnapshot();
+
+    assertThat(snapshot.latencyOf(Operation.PERSIST).getCount(), is(1L));
+    assertThat(snapshot.latencyOf(Operation.FLUSH).getCount(), is(1L));
+    assertThat(snapshot.lobBytesWrittenOf(ENTITY_NAME), greaterThan(1024L));
+    assertThat(snapshot.validationLatencyOf(ENTITY_NAME).getCount(), is(1L));
+  }
+
+  @Test
+  public void testRecordsFindAndLobBytesRead() {
+    MyEntity myEntity = new MyEntity(randomBytes(1024));
+    entityManager.persist(myEntity);
+    flushAndClear();
+    persistenceMetrics.reset();
+
+    entityManager.find(MyEntity.class, myEntity.getId()).getBytes();
+
+    PersistenceMetricsSnapshot snapshot = persistenceMetrics.getSnapshot();
+    assertThat(snapshot.latencyOf(Operation.FIND).getCount(), greaterThan(0L));
+    assertThat(snapshot.lobBytesReadOf(ENTITY_NAME), greaterThan(1024L));
+  }
+
+  @Test
+  public void testRecordsCommit() {
+    EntityManager committingEntityManager =
+        entityManager.getEntityManagerFactory().createEntityManager();
+    try {
+      committingEntityManager.getTransaction().begin();
+      committingEntityManager.getTransaction().commit();
+    } finally {
+      committingEntityManager.close();
+    }
+
+    assertThat(persistenceMetrics.getSnapshot().latencyOf(Operation.COMMIT).getCount(), is(1L));
+  }
+
+  @Test
+  public void testExposesSnapshotThroughJmx() throws JMException {
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    Set<ObjectName> names =
+        mBeanServer.queryNames(new ObjectName("org.myproject:type=PersistenceMetrics,*"), null);
+
+    assertThat(names.isEmpty(), is(false));
+    assertThat(mBeanServer.getAttribute(names.iterator().next(), "Snapshot"),
+        is(instanceOf(CompositeData.class)));
+  }
+
+  @Test
+  public void testRegistersSessionsWithSameNameApart() throws JMException {
+    PersistenceMetrics otherPersistenceMetrics = new PersistenceMetrics();
+    PersistenceMetrics anotherPersistenceMetrics = new PersistenceMetrics();
+    try {
+      ObjectName name = otherPersistenceMetrics.registerMBean("same-name");
+      ObjectName otherName = anotherPersistenceMetrics.registerMBean("same-name");
+
+      assertThat(otherName, is(not(name)));
+      assertThat(otherName.getKeyProperty("instance"), is("2"));
+    } finally {
+      otherPersistenceMetrics.unregisterMBean();
+      anotherPersistenceMetrics.unregisterMBean();
+    }
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
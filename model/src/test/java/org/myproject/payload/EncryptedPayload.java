@@ -0,0 +1,43 @@
+package org.myproject.payload;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.eclipse.persistence.annotations.Convert;
+import org.eclipse.persistence.annotations.Converter;
+
+/**
+ * Entity of the <code>encryptionTestPU</code> whose payload is encrypted by
+ * {@link EncryptingConverter}, declared like entities of the model would declare it.
+ */
+@Entity
+@Table(name = "encrypted_payload")
+@Converter(name = "encrypting", converterClass = EncryptingConverter.class)
+public class EncryptedPayload {
+
+  @Id
+  private long id;
+
+  @Convert("encrypting")
+  @Column(nullable = false, columnDefinition = "BLOB")
+  private byte[] bytes;
+
+  protected EncryptedPayload() {
+    // Required by JPA
+  }
+
+  public EncryptedPayload(long id, byte[] bytes) {
+    this.id = id;
+    this.bytes = bytes;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public byte[] getBytes() {
+    return bytes;
+  }
+}
@@ -0,0 +1,78 @@
+package org.myproject.payload;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myproject.persistence.JdbcConnections;
+import org.myproject.persistence.ModelSessionCustomizer;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class EncryptingConverterTest {
+  private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void setUp() {
+    String masterKey = Base64.getEncoder().encodeToString(randomBytes(16));
+    entityManagerFactory = EntityManagerFactoryRegistry.createPrivate("encryptionTestPU",
+        "encrypted-payloads",
+        Collections.singletonMap(ModelSessionCustomizer.ENCRYPTION_MASTER_KEY, masterKey));
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testPersistsAndFindsEncryptedPayload() throws SQLException {
+    byte[] payload = new byte[4096];
+    new Random(1).nextBytes(payload);
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.persist(new EncryptedPayload(1L, payload));
+      entityManager.getTransaction().commit();
+      entityManager.clear();
+      entityManagerFactory.getCache().evictAll();
+
+      assertThat(entityManager.find(EncryptedPayload.class, 1L).getBytes(), is(payload));
+      assertThat(EnvelopeEncryption.isEncrypted(selectBytes(entityManager, 1L)), is(true));
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private static byte[] selectBytes(EntityManager entityManager, long id) throws SQLException {
+    entityManager.getTransaction().begin();
+    try (PreparedStatement statement = JdbcConnections.of(entityManager)
+        .prepareStatement("SELECT bytes FROM encrypted_payload WHERE id = ?")) {
+      statement.setLong(1, id);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getBytes(1);
+      }
+    } finally {
+      entityManager.getTransaction().rollback();
+    }
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
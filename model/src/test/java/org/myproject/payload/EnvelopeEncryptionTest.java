@@ -0,0 +1,140 @@
+package org.myproject.payload;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.persistence.mappings.DirectToFieldMapping;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.Session;
+import org.junit.Test;
+
+public class EnvelopeEncryptionTest {
+  // Magic bytes, version, key length and initialization vector, see EnvelopeEncryption#isEncrypted
+  private static final int MIN_ENCRYPTED_LENGTH = 3 + 2 + 12;
+
+  // System under test (SUT)
+  private final EnvelopeEncryption envelopeEncryption =
+      new EnvelopeEncryption(new SecretKeySpec(randomBytes(16), "AES"));
+
+  @Test
+  public void testEncryptsAndDecryptsPayload() {
+    byte[] payload = randomBytes(1000);
+
+    byte[] encrypted = envelopeEncryption.encrypt(payload);
+
+    assertThat(EnvelopeEncryption.isEncrypted(encrypted), is(true));
+    assertThat(envelopeEncryption.decrypt(encrypted), is(payload));
+  }
+
+  @Test
+  public void testEncryptsSamePayloadDifferently() {
+    byte[] payload = randomBytes(100);
+
+    assertThat(envelopeEncryption.encrypt(payload), is(not(envelopeEncryption.encrypt(payload))));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsTamperedPayload() {
+    byte[] encrypted = envelopeEncryption.encrypt(randomBytes(100));
+    encrypted[encrypted.length - 1] ^= 1;
+
+    envelopeEncryption.decrypt(encrypted);
+  }
+
+  @Test
+  public void testRejectsTruncatedPayload() {
+    byte[] encrypted = envelopeEncryption.encrypt(randomBytes(100));
+
+    for (int length = MIN_ENCRYPTED_LENGTH; length < encrypted.length; length++) {
+      try {
+        envelopeEncryption.decrypt(Arrays.copyOf(encrypted, length));
+        fail("Decrypting a payload truncated to [" + length + "] bytes should fail.");
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        // Truncated ciphertexts fail the authentication, shorter payloads fail up front
+      }
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRejectsPayloadTruncatedWithinWrappedKey() {
+    byte[] encrypted = envelopeEncryption.encrypt(randomBytes(100));
+
+    envelopeEncryption.decrypt(Arrays.copyOf(encrypted, MIN_ENCRYPTED_LENGTH));
+  }
+
+  @Test
+  public void testEncryptsAndDecryptsPayloadsInParallel() {
+    List<byte[]> payloads = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      payloads.add(randomBytes(i));
+    }
+
+    List<byte[]> decrypted = envelopeEncryption.decryptAll(envelopeEncryption.encryptAll(payloads));
+
+    assertThat(decrypted.size(), is(payloads.size()));
+    for (int i = 0; i < payloads.size(); i++) {
+      assertThat(decrypted.get(i), is(payloads.get(i)));
+    }
+  }
+
+  @Test
+  public void testConverterCompressesAndEncryptsPayload() {
+    Session session = createSession(envelopeEncryption);
+    EncryptingConverter encryptingConverter = createConverter(session);
+    byte[] payload = new byte[4096];
+
+    byte[] dbData = (byte[]) encryptingConverter.convertObjectValueToDataValue(payload, session);
+
+    assertThat(EnvelopeEncryption.isEncrypted(dbData), is(true));
+    assertThat(dbData.length < payload.length, is(true));
+    assertThat(encryptingConverter.convertDataValueToObjectValue(dbData, session), is(payload));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testConverterUsesEncryptionOfItsSession() {
+    Session session = createSession(envelopeEncryption);
+    Session otherSession =
+        createSession(new EnvelopeEncryption(new SecretKeySpec(randomBytes(32), "AES")));
+    byte[] dbData = (byte[]) createConverter(session)
+        .convertObjectValueToDataValue(randomBytes(100), session);
+
+    createConverter(otherSession).convertDataValueToObjectValue(dbData, otherSession);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testConverterRequiresEncryption() {
+    createConverter(createSession(null));
+  }
+
+  private static Session createSession(EnvelopeEncryption envelopeEncryption) {
+    Session session = new Project(new DatabaseLogin()).createDatabaseSession();
+    if (envelopeEncryption != null) {
+      session.setProperty(EncryptingConverter.SESSION_PROPERTY, envelopeEncryption);
+    }
+    return session;
+  }
+
+  private static EncryptingConverter createConverter(Session session) {
+    DirectToFieldMapping mapping = new DirectToFieldMapping();
+    mapping.setAttributeName("bytes");
+    EncryptingConverter encryptingConverter = new EncryptingConverter();
+    encryptingConverter.initialize(mapping, session);
+    return encryptingConverter;
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,126 @@
+package org.myproject.payload;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class PayloadCompressionTest {
+  private static final int THRESHOLD = 64;
+
+  @Test
+  public void testDeflatesCompressiblePayload() {
+    byte[] payload = new byte[4096];
+
+    byte[] encoded = PayloadCompression.encode(payload, THRESHOLD);
+
+    assertThat(encoded.length, is(lessThan(payload.length)));
+    assertThat(PayloadCompression.decode(encoded), is(payload));
+  }
+
+  @Test
+  public void testStoresPayloadBelowThreshold() {
+    byte[] payload = randomBytes(THRESHOLD - 1);
+
+    byte[] encoded = PayloadCompression.encode(payload, THRESHOLD);
+
+    assertThat(encoded.length, is(PayloadCompression.HEADER_LENGTH + payload.length));
+    assertThat(PayloadCompression.decode(encoded), is(payload));
+  }
+
+  @Test
+  public void testStoresIncompressiblePayload() {
+    byte[] payload = randomBytes(4096);
+
+    byte[] encoded = PayloadCompression.encode(payload, THRESHOLD);
+
+    assertThat(encoded.length, is(PayloadCompression.HEADER_LENGTH + payload.length));
+    assertThat(PayloadCompression.decode(encoded), is(payload));
+  }
+
+  @Test
+  public void testDecodesPayloadWithoutHeaderAsIs() throws IOException {
+    byte[] payload = randomBytes(100);
+
+    assertThat(PayloadCompression.decode(payload), is(payload));
+    assertThat(toByteArray(PayloadCompression.decode(new ByteArrayInputStream(payload))),
+        is(payload));
+  }
+
+  @Test
+  public void testRejectsPayloadWithInconsistentHeader() {
+    byte[] stored = PayloadCompression.encode(randomBytes(100), THRESHOLD);
+    byte[] deflated = PayloadCompression.encode(new byte[4096], THRESHOLD);
+    byte[] oversized = deflated.clone();
+    ByteBuffer.wrap(oversized, 4, 4).putInt(Integer.MAX_VALUE);
+    byte[] undersized = deflated.clone();
+    ByteBuffer.wrap(undersized, 4, 4).putInt(4095);
+    byte[] negative = stored.clone();
+    ByteBuffer.wrap(negative, 4, 4).putInt(-1);
+    byte[] garbled = deflated.clone();
+    Arrays.fill(garbled, PayloadCompression.HEADER_LENGTH, garbled.length, (byte) 0xFF);
+
+    List<byte[]> corrupt = Arrays.asList(
+        Arrays.copyOf(stored, 50),
+        Arrays.copyOf(stored, stored.length + 1),
+        oversized,
+        undersized,
+        negative,
+        garbled,
+        Arrays.copyOf(deflated, deflated.length / 2));
+
+    for (byte[] encoded : corrupt) {
+      try {
+        PayloadCompression.decode(encoded);
+        fail("Decoding an array with an inconsistent header should fail.");
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+      try {
+        toByteArray(PayloadCompression.decode(new ByteArrayInputStream(encoded)));
+        fail("Decoding a stream with an inconsistent header should fail.");
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void testEncodesAndDecodesStreams() throws IOException {
+    byte[] payload = new byte[10000];
+    byte[] prefixed = new byte[payload.length + 10];
+
+    InputStream encoded =
+        PayloadCompression.encode(new ByteArrayInputStream(prefixed), payload.length, THRESHOLD);
+    byte[] encodedBytes = toByteArray(encoded);
+
+    assertThat(encodedBytes.length, is(lessThan(payload.length)));
+    assertThat(PayloadCompression.decode(encodedBytes), is(payload));
+    assertThat(toByteArray(PayloadCompression.decode(new ByteArrayInputStream(encodedBytes))),
+        is(payload));
+  }
+
+  private static byte[] toByteArray(InputStream inputStream) throws IOException {
+    try (InputStream closeable = inputStream) {
+      return ByteStreams.toByteArray(closeable);
+    }
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,131 @@
+package org.myproject.persistence;
+
+import static test.matchers.MoreMatchers.issuedNoLobSelects;
+import static test.matchers.MoreMatchers.issuedStatements;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.beans.PropertyChangeEvent;
+import java.lang.reflect.Field;
+
+import javax.validation.ConstraintViolationException;
+
+import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
+import org.junit.Test;
+import org.myproject.MyEntity;
+import org.myproject.SharedPayload;
+
+import com.google.common.base.Strings;
+
+import test.jpa.AbstractJPARolledBackTestCase;
+import test.jpa.SqlCapture;
+import test.reflect.ReflectionTestUtils;
+
+public class DirtyAwareValidationListenerTest extends AbstractJPARolledBackTestCase {
+
+  @Override
+  protected String getPersistenceUnitName() {
+    return "appserverTestPU";
+  }
+
+  @Test
+  public void testValidatesPersistedEntity() {
+    MyEntity myEntity = new MyEntity();
+    ReflectionTestUtils.setField(myEntity, byte[].class, null);
+
+    try {
+      entityManager.persist(myEntity);
+      fail("Expected a ConstraintViolationException");
+    } catch (ConstraintViolationException e) {
+      assertThat(e.getConstraintViolations().size(), is(1));
+      assertThat(e.getConstraintViolations().iterator().next().getPropertyPath().toString(),
+          is("bytes"));
+    }
+  }
+
+  @Test
+  public void testValidatesChangedAttributesOfUpdatedEntity() {
+    MyEntity myEntity = new MyEntity(new byte[16]);
+    entityManager.persist(myEntity);
+    entityManager.flush();
+    byte[] bytes = myEntity.getBytes();
+    ReflectionTestUtils.setField(myEntity, byte[].class, null);
+    // Reports the change like a woven setter
+    ((ChangeTracker) myEntity)._persistence_getPropertyChangeListener()
+        .propertyChange(new PropertyChangeEvent(myEntity, "bytes", bytes, null));
+
+    try {
+      entityManager.flush();
+      fail("Expected a ConstraintViolationException");
+    } catch (ConstraintViolationException e) {
+      assertThat(e.getConstraintViolations().size(), is(1));
+    }
+  }
+
+  // The payload of MyEntity is its only attribute that can be changed, and replacing it fetches
+  // the replaced one for the change event, so the lazy payload of SharedPayload is left unchanged
+  @Test
+  public void testUpdatesEntityWithoutFetchingUnchangedAttributes()
+      throws ReflectiveOperationException {
+    SharedPayload found = persistAndFind(new SharedPayload(Strings.repeat("a", 64), new byte[16]));
+    changeReferenceCount(found, 2L);
+
+    // Captures the flush that issues the update
+    SqlCapture sqlCapture = captureSql(() -> { });
+
+    assertThat(sqlCapture, is(issuedNoLobSelects()));
+    assertThat(sqlCapture, is(issuedStatements(1)));
+    assertThat(isBytesLoaded(found), is(false));
+    flushAndClear();
+    assertThat(entityManager.find(SharedPayload.class, found.getId()).getReferenceCount(),
+        is(2L));
+  }
+
+  @Test
+  public void testRejectsInvalidChangeWithoutFetchingUnchangedAttributes()
+      throws ReflectiveOperationException {
+    SharedPayload found = persistAndFind(new SharedPayload(Strings.repeat("b", 64), new byte[16]));
+    changeReferenceCount(found, -1L);
+
+    try (SqlCapture sqlCapture = SqlCapture.start(entityManager)) {
+      try {
+        entityManager.flush();
+        fail("Expected a ConstraintViolationException");
+      } catch (ConstraintViolationException e) {
+        assertThat(e.getConstraintViolations().size(), is(1));
+        assertThat(e.getConstraintViolations().iterator().next().getPropertyPath().toString(),
+            is("referenceCount"));
+      }
+      assertThat(sqlCapture, is(issuedNoLobSelects()));
+    }
+    assertThat(isBytesLoaded(found), is(false));
+  }
+
+  private SharedPayload persistAndFind(SharedPayload sharedPayload) {
+    entityManager.persist(sharedPayload);
+    flushAndClear();
+
+    SharedPayload found = entityManager.find(SharedPayload.class, sharedPayload.getId());
+    assertThat(isBytesLoaded(found), is(false));
+    return found;
+  }
+
+  private static void changeReferenceCount(SharedPayload sharedPayload, long referenceCount)
+      throws ReflectiveOperationException {
+    long oldReferenceCount = sharedPayload.getReferenceCount();
+    // Set by name, weaving adds other fields of the same type
+    Field field = SharedPayload.class.getDeclaredField("referenceCount");
+    field.setAccessible(true);
+    field.setLong(sharedPayload, referenceCount);
+    // Reports the change like a woven setter, reference counts have none
+    ((ChangeTracker) sharedPayload)._persistence_getPropertyChangeListener().propertyChange(
+        new PropertyChangeEvent(sharedPayload, "referenceCount", oldReferenceCount,
+            referenceCount));
+  }
+
+  private boolean isBytesLoaded(SharedPayload sharedPayload) {
+    return entityManager.getEntityManagerFactory().getPersistenceUnitUtil()
+        .isLoaded(sharedPayload, "bytes");
+  }
+}
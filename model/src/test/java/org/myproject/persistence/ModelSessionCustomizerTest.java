@@ -0,0 +1,90 @@
+package org.myproject.persistence;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myproject.MyEntity;
+
+import com.google.common.base.Throwables;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class ModelSessionCustomizerTest {
+  private static final String DATABASE_NAME = "sequence-increment";
+
+  private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void setUp() {
+    // Keeps the database and its sequences, which are incremented by 500, while the test runs
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", DATABASE_NAME);
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.persist(new MyEntity(new byte[] {1}));
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testLogsInIfPreallocationSizeMatchesIncrement() {
+    EntityManagerFactory otherEntityManagerFactory = createEntityManagerFactory(500);
+    try {
+      EntityManager entityManager = otherEntityManagerFactory.createEntityManager();
+      try {
+        entityManager.getTransaction().begin();
+        MyEntity myEntity = new MyEntity(new byte[] {2});
+        entityManager.persist(myEntity);
+        entityManager.getTransaction().commit();
+
+        assertThat(myEntity.getId(), is(notNullValue()));
+      } finally {
+        entityManager.close();
+      }
+    } finally {
+      otherEntityManagerFactory.close();
+    }
+  }
+
+  @Test
+  public void testRejectsPreallocationSizeOtherThanIncrement() {
+    EntityManagerFactory otherEntityManagerFactory = createEntityManagerFactory(50);
+    try {
+      otherEntityManagerFactory.createEntityManager().close();
+      fail("Login should fail if the preallocation size does not match the sequence.");
+    } catch (PersistenceException e) {
+      assertThat(Throwables.getRootCause(e).getMessage(), containsString("incremented by [500]"));
+    } finally {
+      otherEntityManagerFactory.close();
+    }
+  }
+
+  private static EntityManagerFactory createEntityManagerFactory(int preallocationSize) {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("eclipselink.session-name", DATABASE_NAME + "-" + preallocationSize);
+    properties.put(ModelSessionCustomizer.SEQUENCE_PREALLOCATION_SIZE, preallocationSize);
+    return EntityManagerFactoryRegistry.createPrivate("appserverTestPU", DATABASE_NAME,
+        properties);
+  }
+}
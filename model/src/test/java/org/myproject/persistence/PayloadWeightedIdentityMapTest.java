@@ -0,0 +1,154 @@
+package org.myproject.persistence;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myproject.MyEntity;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class PayloadWeightedIdentityMapTest {
+  private static final int PAYLOAD_LENGTH = 1000;
+  private static final long MAX_BYTES =
+      5 * (PAYLOAD_LENGTH + PayloadWeightedIdentityMap.ENTRY_OVERHEAD);
+
+  private EntityManagerFactory entityManagerFactory;
+
+  // System under test (SUT)
+  private PayloadWeightedIdentityMap payloadWeightedIdentityMap;
+
+  @Before
+  public void setUp() {
+    entityManagerFactory = EntityManagerFactoryRegistry.createPrivate("appserverTestPU",
+        "weighted-cache", Collections.singletonMap(ModelSessionCustomizer.CACHE_MAX_BYTES,
+            String.valueOf(MAX_BYTES)));
+    AbstractSession session = (AbstractSession) JpaHelper.getServerSession(entityManagerFactory);
+    payloadWeightedIdentityMap = (PayloadWeightedIdentityMap) session
+        .getIdentityMapAccessorInstance().getIdentityMap(MyEntity.class);
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testStaysWithinByteBudget() {
+    List<Long> ids = persist(20);
+
+    assertThat(payloadWeightedIdentityMap.getMaxBytes(), is(MAX_BYTES));
+    assertThat(payloadWeightedIdentityMap.getWeight(), is(lessThanOrEqualTo(MAX_BYTES)));
+    assertThat(payloadWeightedIdentityMap.getEvictionCount(), is(greaterThan(10L)));
+    assertThat(payloadWeightedIdentityMap.getSize(), is(lessThanOrEqualTo(5)));
+    assertThat(find(ids.get(0)), is(notNullValue()));
+  }
+
+  @Test
+  public void testServesHotReadsFromMemory() {
+    List<Long> ids = persist(2);
+    long hits = payloadWeightedIdentityMap.getHitCount();
+
+    for (Long id : ids) {
+      assertThat(find(id).getBytes().length, is(PAYLOAD_LENGTH));
+    }
+
+    assertThat(payloadWeightedIdentityMap.getHitCount(), is(greaterThan(hits)));
+    assertThat(payloadWeightedIdentityMap.getEvictionCount(), is(0L));
+  }
+
+  @Test
+  public void testWeighsMergedPayloads() {
+    long id = persist(1).get(0);
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      MyEntity myEntity = entityManager.find(MyEntity.class, id);
+      myEntity.getBytes();
+      assertThat(payloadWeightedIdentityMap.getWeight(),
+          is(PAYLOAD_LENGTH + PayloadWeightedIdentityMap.ENTRY_OVERHEAD));
+
+      entityManager.getTransaction().begin();
+      myEntity.setBytes(new byte[2 * PAYLOAD_LENGTH]);
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+
+    assertThat(payloadWeightedIdentityMap.getWeight(),
+        is(2 * PAYLOAD_LENGTH + PayloadWeightedIdentityMap.ENTRY_OVERHEAD));
+  }
+
+  @Test
+  public void testForgetsRemovedEntriesWhileUnderBudget() {
+    for (int round = 0; round < 20; round++) {
+      delete(persist(3));
+    }
+
+    assertThat(payloadWeightedIdentityMap.getEvictionCount(), is(0L));
+    assertThat(payloadWeightedIdentityMap.getSize(), is(0));
+    assertThat(payloadWeightedIdentityMap.getEvictionQueueSize(), is(lessThanOrEqualTo(6)));
+  }
+
+  private List<Long> persist(int count) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      List<MyEntity> entities = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        byte[] bytes = new byte[PAYLOAD_LENGTH];
+        new Random(i).nextBytes(bytes);
+        MyEntity myEntity = new MyEntity(bytes);
+        entityManager.persist(myEntity);
+        entities.add(myEntity);
+      }
+      entityManager.getTransaction().commit();
+      List<Long> ids = new ArrayList<>();
+      for (MyEntity myEntity : entities) {
+        ids.add(myEntity.getId());
+      }
+      return ids;
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private void delete(List<Long> ids) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      for (Long id : ids) {
+        entityManager.remove(entityManager.find(MyEntity.class, id));
+      }
+      entityManager.getTransaction().commit();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private MyEntity find(long id) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      MyEntity myEntity = entityManager.find(MyEntity.class, id);
+      myEntity.getBytes();
+      return myEntity;
+    } finally {
+      entityManager.close();
+    }
+  }
+}
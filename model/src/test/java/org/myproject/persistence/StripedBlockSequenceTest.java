@@ -0,0 +1,81 @@
+package org.myproject.persistence;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.internal.databaseaccess.Platform;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import test.jpa.EntityManagerFactoryRegistry;
+
+public class StripedBlockSequenceTest {
+  private static final int BLOCK_SIZE = 500;
+
+  private EntityManagerFactory entityManagerFactory;
+  private Session session;
+  private Platform platform;
+
+  // System under test (SUT)
+  private StripedBlockSequence stripedBlockSequence;
+
+  @Before
+  public void setUp() {
+    entityManagerFactory =
+        EntityManagerFactoryRegistry.createPrivate("appserverTestPU", "striped-block-sequence");
+    entityManagerFactory.createEntityManager().close();
+    session = JpaHelper.getServerSession(entityManagerFactory);
+    platform = session.getDatasourcePlatform();
+    stripedBlockSequence = new StripedBlockSequence(session, "my_entity_seq", BLOCK_SIZE, 1, 1);
+  }
+
+  @After
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testKeepsAllocatorUntilLastSessionDisconnects() {
+    stripedBlockSequence.onConnect(platform);
+    stripedBlockSequence.onConnect(platform);
+    long first = nextValue();
+
+    stripedBlockSequence.onDisconnect(platform);
+
+    assertThat(nextValue(), is(first + 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testHandsOutNoIdsAfterLastSessionDisconnects() {
+    stripedBlockSequence.onConnect(platform);
+    stripedBlockSequence.onConnect(platform);
+    nextValue();
+
+    stripedBlockSequence.onDisconnect(platform);
+    stripedBlockSequence.onDisconnect(platform);
+
+    nextValue();
+  }
+
+  @Test
+  public void testKeepsAllocatorWhenCloned() {
+    stripedBlockSequence.onConnect(platform);
+
+    StripedBlockSequence clone = (StripedBlockSequence) stripedBlockSequence.clone();
+    clone.onConnect(platform);
+    clone.onDisconnect(platform);
+
+    long first = nextValue();
+    assertThat(nextValue(), is(first + 1));
+  }
+
+  private long nextValue() {
+    return ((Number) stripedBlockSequence.getGeneratedValue(null, null, "my_entity_seq"))
+        .longValue();
+  }
+}
@@ -0,0 +1,125 @@
+package org.myproject.persistence;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class StripedIdAllocatorTest {
+  private static final int BLOCK_SIZE = 100;
+
+  private final AtomicLong sequence = new AtomicLong(1);
+  private final AtomicInteger reservations = new AtomicInteger();
+
+  // System under test (SUT)
+  private StripedIdAllocator stripedIdAllocator;
+
+  @After
+  public void tearDown() {
+    if (stripedIdAllocator != null) {
+      stripedIdAllocator.close();
+    }
+  }
+
+  @Test
+  public void testHandsOutConsecutiveIdsOnOneThread() {
+    stripedIdAllocator = new StripedIdAllocator(this::reserveBlock, BLOCK_SIZE, 1);
+
+    for (long expected = 1; expected <= 3 * BLOCK_SIZE; expected++) {
+      assertThat(stripedIdAllocator.next(), is(expected));
+    }
+  }
+
+  @Test
+  public void testHandsOutUniqueIdsAcrossThreads() throws Exception {
+    stripedIdAllocator = new StripedIdAllocator(this::reserveBlock, BLOCK_SIZE, 4);
+    Set<Long> ids = ConcurrentHashMap.newKeySet();
+    int threadCount = 8;
+    int idsPerThread = 10000;
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        futures.add(executorService.submit(() -> {
+          for (int j = 0; j < idsPerThread; j++) {
+            ids.add(stripedIdAllocator.next());
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    assertThat(ids.size(), is(threadCount * idsPerThread));
+    // Every stripe may have reserved one block in advance that is not used yet
+    assertThat(reservations.get(), lessThanOrEqualTo(threadCount * idsPerThread / BLOCK_SIZE + 8));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPropagatesFailingReservation() {
+    stripedIdAllocator = new StripedIdAllocator(blockSize -> {
+      throw new IllegalStateException("sequence not available");
+    }, BLOCK_SIZE, 1);
+
+    stripedIdAllocator.next();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFailsToReserveAfterClose() {
+    stripedIdAllocator = new StripedIdAllocator(this::reserveBlock, BLOCK_SIZE, 1);
+    stripedIdAllocator.close();
+
+    stripedIdAllocator.next();
+  }
+
+  @Test(timeout = 10000)
+  public void testFailsToAwaitPendingReservationAfterClose() {
+    CountDownLatch release = new CountDownLatch(1);
+    stripedIdAllocator = new StripedIdAllocator(blockSize -> {
+      if (reservations.get() > 0) {
+        // Ignores the interrupt from close, like a blocked JDBC call would
+        Uninterruptibles.awaitUninterruptibly(release);
+      }
+      return reserveBlock(blockSize);
+    }, BLOCK_SIZE, 1);
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      stripedIdAllocator.next();
+    }
+
+    stripedIdAllocator.close();
+
+    try {
+      stripedIdAllocator.next();
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("Allocator has been closed."));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private long reserveBlock(int blockSize) {
+    reservations.incrementAndGet();
+    return sequence.getAndAdd(blockSize);
+  }
+}
@@ -0,0 +1,147 @@
+package processor.entity;
+
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Enforces the rules for declaring a JPA entity type at compile time, violations are reported as
+ * errors and fail the compilation. These are the same rules that
+ * <code>test.validator.EntityTypeValidator</code> checks at test time:
+ * <ul>
+ * <li>the entity has a public or protected zero-argument constructor,</li>
+ * <li>the entity has a field named <code>id</code> of type {@link Long} that is annotated with
+ * <code>@Id</code> and <code>@GeneratedValue</code>,</li>
+ * <li>the entity has a public method named <code>getId</code>.</li>
+ * </ul>
+ * The rule that the <code>@Entity</code> annotation should be applied is implied, only classes
+ * annotated with it are processed.
+ */
+@SupportedAnnotationTypes(EntityRulesProcessor.ENTITY)
+public class EntityRulesProcessor extends AbstractProcessor {
+  static final String ENTITY = "javax.persistence.Entity";
+  private static final String ID = "javax.persistence.Id";
+  private static final String GENERATED_VALUE = "javax.persistence.GeneratedValue";
+  private static final String ID_FIELD_NAME = "id";
+  private static final String GET_ID_METHOD_NAME = "getId";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (TypeElement entity : ElementFilter
+          .typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+        validateConstructor(entity);
+        validateIdField(entity);
+        validateIdGetter(entity);
+      }
+    }
+    // Other processors, such as the one generating the metamodel, also process entities
+    return false;
+  }
+
+  private void validateConstructor(TypeElement entity) {
+    for (ExecutableElement constructor : ElementFilter
+        .constructorsIn(entity.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty() && isPublicOrProtected(constructor)) {
+        return;
+      }
+    }
+    error(entity, "entity should have a public or protected zero-argument constructor");
+  }
+
+  private void validateIdField(TypeElement entity) {
+    VariableElement idField = findIdField(entity);
+    if (idField == null) {
+      error(entity, "entity should have a field named [%s].", ID_FIELD_NAME);
+      return;
+    }
+    if (isType(idField.asType(), Long.class.getName()) == false) {
+      error(idField, "field id should have type [%s]", Long.class.getName());
+    }
+    if (isAnnotatedWith(idField, ID) == false) {
+      error(idField, "annotation [%s] should be applied to the id field declaration", ID);
+    }
+    if (isAnnotatedWith(idField, GENERATED_VALUE) == false) {
+      error(idField, "annotation [%s] should be applied to the id field declaration",
+          GENERATED_VALUE);
+    }
+  }
+
+  private void validateIdGetter(TypeElement entity) {
+    for (TypeElement type = entity; type != null; type = getSuperclass(type)) {
+      for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+        if (method.getSimpleName().contentEquals(GET_ID_METHOD_NAME)
+            && method.getParameters().isEmpty()
+            && method.getModifiers().contains(Modifier.PUBLIC)) {
+          return;
+        }
+      }
+    }
+    error(entity, "entity should always have a public method named [%s].", GET_ID_METHOD_NAME);
+  }
+
+  private VariableElement findIdField(TypeElement entity) {
+    for (TypeElement type = entity; type != null; type = getSuperclass(type)) {
+      for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+        if (field.getSimpleName().contentEquals(ID_FIELD_NAME)) {
+          return field;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static TypeElement getSuperclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED
+        || isType(superclass, Object.class.getName())) {
+      return null;
+    }
+    return (TypeElement) ((DeclaredType) superclass).asElement();
+  }
+
+  private static boolean isPublicOrProtected(Element element) {
+    Set<Modifier> modifiers = element.getModifiers();
+    return modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PROTECTED);
+  }
+
+  private static boolean isAnnotatedWith(Element element, String annotationName) {
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      if (isType(annotationMirror.getAnnotationType(), annotationName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isType(TypeMirror typeMirror, String name) {
+    return typeMirror.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) typeMirror)
+        .asElement()).getQualifiedName().contentEquals(name);
+  }
+
+  private void error(Element element, String messageTemplate, Object... messageArgs) {
+    Messager messager = processingEnv.getMessager();
+    messager.printMessage(Diagnostic.Kind.ERROR, String.format(messageTemplate, messageArgs),
+        element);
+  }
+}
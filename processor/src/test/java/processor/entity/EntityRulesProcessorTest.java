@@ -0,0 +1,118 @@
+package processor.entity;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.persistence.Entity;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EntityRulesProcessorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testAcceptsValidEntity() throws Exception {
+    List<String> errors = compile("ValidEntity",
+        "@javax.persistence.Entity public class ValidEntity {",
+        "  @javax.persistence.Id @javax.persistence.GeneratedValue private Long id;",
+        "  protected ValidEntity() {}",
+        "  public Long getId() { return id; }",
+        "}");
+
+    assertThat(errors, is(empty()));
+  }
+
+  @Test
+  public void testReportsViolatedRules() throws Exception {
+    List<String> errors = compile("InvalidEntity",
+        "@javax.persistence.Entity public class InvalidEntity {",
+        "  private long id;",
+        "  private InvalidEntity() {}",
+        "}");
+
+    assertThat(errors, containsInAnyOrder(
+        "entity should have a public or protected zero-argument constructor",
+        "field id should have type [java.lang.Long]",
+        "annotation [javax.persistence.Id] should be applied to the id field declaration",
+        "annotation [javax.persistence.GeneratedValue] should be applied to the id field "
+            + "declaration",
+        "entity should always have a public method named [getId]."));
+  }
+
+  @Test
+  public void testFindsIdInSuperclass() throws Exception {
+    List<String> errors = compile("SubEntity",
+        "@javax.persistence.Entity public class SubEntity extends Base {",
+        "  public SubEntity() {}",
+        "}",
+        "class Base {",
+        "  @javax.persistence.Id @javax.persistence.GeneratedValue Long id;",
+        "  public Long getId() { return id; }",
+        "}");
+
+    assertThat(errors, is(empty()));
+  }
+
+  @Test
+  public void testReportsMissingIdField() throws Exception {
+    List<String> errors = compile("NoIdEntity",
+        "@javax.persistence.Entity public class NoIdEntity {",
+        "  public Long getId() { return null; }",
+        "}");
+
+    assertThat(errors, contains("entity should have a field named [id]."));
+  }
+
+  private List<String> compile(String className, String... lines) throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    String classPath = new File(Entity.class.getProtectionDomain().getCodeSource().getLocation()
+        .toURI()).getPath();
+    List<String> options = Arrays.asList("-classpath", classPath, "-d",
+        temporaryFolder.getRoot().getPath(), "-proc:only");
+    JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+        Collections.singletonList(new SourceFile(className, String.join("\n", lines))));
+    task.setProcessors(Collections.singletonList(new EntityRulesProcessor()));
+    task.call();
+
+    return diagnostics.getDiagnostics().stream()
+        .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+        .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+        .collect(Collectors.toList());
+  }
+
+  private static final class SourceFile extends SimpleJavaFileObject {
+    private final String source;
+
+    private SourceFile(String className, String source) {
+      super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package test.categories;
+
+/**
+ * Marks tests that hold an operation to a budget of elapsed time, see
+ * <code>test.matchers.MoreMatchers#completesWithin</code>. Elapsed time depends on the machine and
+ * on what else it runs, so these tests are excluded from the default build and run with the
+ * <code>latency-budgets</code> profile, preferably on a quiet machine. Budgets of allocated bytes
+ * do not depend on either and stay in the default build.
+ */
+public interface LatencyBudget {
+}
@@ -1,7 +1,6 @@
 package test.jpa;
 
 import org.junit.After;
-import org.junit.AfterClass;
 import org.junit.Before;
 
 import javax.persistence.EntityManager;
@@ -10,8 +9,12 @@ import javax.persistence.Persistence;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Runs every test in a transaction that is rolled back afterwards. The {@link EntityManagerFactory}
+ * is taken from the {@link EntityManagerFactoryRegistry}, so it is shared by all test classes that
+ * use the same persistence unit and stays open until the JVM exits.
+ */
 public abstract class AbstractJPARolledBackTestCase {
-  private static EntityManagerFactory entityManagerFactory;
   protected EntityManager entityManager;
 
   /**
@@ -35,13 +38,6 @@ public abstract class AbstractJPARolledBackTestCase {
    */
   protected abstract String getPersistenceUnitName();
 
-  @AfterClass
-  public static void closeEntityManagerFactory() {
-    if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
-      entityManagerFactory.close();
-    }
-  }
-
   @Before
   public void beginTransaction() {
     entityManager = getEntityManagerFactory().createEntityManager();
@@ -64,11 +60,22 @@ public abstract class AbstractJPARolledBackTestCase {
     entityManager.clear();
   }
 
-  private synchronized EntityManagerFactory getEntityManagerFactory() {
-    if (entityManagerFactory == null || entityManagerFactory.isOpen() == false) {
-      entityManagerFactory =
-          Persistence.createEntityManagerFactory(checkNotNull(getPersistenceUnitName()));
+  /**
+   * Runs the given work and returns the SQL that it issued through the entity manager of the test.
+   * The persistence context is flushed before the capture ends, so statements that are batched or
+   * deferred until flush are recorded as well.
+   */
+  protected SqlCapture captureSql(Runnable work) {
+    checkNotNull(work);
+
+    try (SqlCapture sqlCapture = SqlCapture.start(entityManager)) {
+      work.run();
+      entityManager.flush();
+      return sqlCapture;
     }
-    return entityManagerFactory;
+  }
+
+  private EntityManagerFactory getEntityManagerFactory() {
+    return EntityManagerFactoryRegistry.get(checkNotNull(getPersistenceUnitName()));
   }
 }
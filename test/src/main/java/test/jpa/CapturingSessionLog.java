@@ -0,0 +1,152 @@
+package test.jpa;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.logging.AbstractSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.logging.SessionLogEntry;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Forwards to the log a session had before and records the SQL that is logged while a
+ * {@link SqlCapture} is active on the logging thread. SQL is always logged while capturing,
+ * whatever the level of the original log, but only forwarded if the original log would log it.
+ */
+final class CapturingSessionLog extends AbstractSessionLog {
+  private static final String BEGIN_BATCH = "begin_batch_statements";
+  private static final String END_BATCH = "end_batch_statements";
+  private static final String BIND_PREFIX = "\tbind";
+
+  private static final ThreadLocal<Recording> RECORDINGS = new ThreadLocal<>();
+  // Lets logs skip the thread local as long as nothing is captured at all
+  private static final AtomicInteger RECORDING_COUNT = new AtomicInteger();
+
+  private final SessionLog sessionLog;
+
+  CapturingSessionLog(SessionLog sessionLog) {
+    this.sessionLog = checkNotNull(sessionLog);
+  }
+
+  static void startRecording(List<SqlStatement> statements) {
+    RECORDINGS.set(new Recording(statements));
+    RECORDING_COUNT.incrementAndGet();
+  }
+
+  static boolean isRecording() {
+    return RECORDINGS.get() != null;
+  }
+
+  static void stopRecording() {
+    RECORDINGS.remove();
+    RECORDING_COUNT.decrementAndGet();
+  }
+
+  @Override
+  public boolean shouldLog(int level, String category) {
+    return (SessionLog.SQL.equals(category) && currentRecording() != null)
+        || sessionLog.shouldLog(level, category);
+  }
+
+  @Override
+  public void log(SessionLogEntry sessionLogEntry) {
+    Recording recording = currentRecording();
+    if (recording != null && SessionLog.SQL.equals(sessionLogEntry.getNameSpace())) {
+      recording.record(sessionLogEntry);
+    }
+    if (sessionLog.shouldLog(sessionLogEntry.getLevel(), sessionLogEntry.getNameSpace())) {
+      sessionLog.log(sessionLogEntry);
+    }
+  }
+
+  @Override
+  public int getLevel() {
+    return sessionLog.getLevel();
+  }
+
+  @Override
+  public int getLevel(String category) {
+    return sessionLog.getLevel(category);
+  }
+
+  @Override
+  public void setLevel(int level) {
+    sessionLog.setLevel(level);
+  }
+
+  @Override
+  public void setLevel(int level, String category) {
+    sessionLog.setLevel(level, category);
+  }
+
+  @Override
+  public boolean isOff() {
+    return sessionLog.getLevel() == SessionLog.OFF;
+  }
+
+  @Override
+  public boolean shouldDisplayData() {
+    return sessionLog.shouldDisplayData();
+  }
+
+  @Override
+  public void setShouldDisplayData(Boolean shouldDisplayData) {
+    sessionLog.setShouldDisplayData(shouldDisplayData);
+  }
+
+  private static Recording currentRecording() {
+    return RECORDING_COUNT.get() == 0 ? null : RECORDINGS.get();
+  }
+
+  /**
+   * Turns the SQL log entries of one thread into statements. A JDBC batch is logged as a begin
+   * marker, its SQL, one line of parameters per row and an end marker.
+   */
+  private static final class Recording {
+    private final List<SqlStatement> statements;
+    private boolean inBatch;
+    private String batchSql;
+    private int batchSize;
+
+    Recording(List<SqlStatement> statements) {
+      this.statements = statements;
+    }
+
+    void record(SessionLogEntry sessionLogEntry) {
+      String message = sessionLogEntry.getMessage();
+      if (sessionLogEntry.shouldTranslate()) {
+        if (BEGIN_BATCH.equals(message)) {
+          inBatch = true;
+          batchSql = null;
+          batchSize = 0;
+        } else if (END_BATCH.equals(message)) {
+          inBatch = false;
+          if (batchSql != null) {
+            statements.add(new SqlStatement(batchSql, Math.max(batchSize, 1)));
+          }
+        }
+        return;
+      }
+      if (sessionLogEntry.getLevel() != SessionLog.FINE) {
+        return;
+      }
+      if (inBatch == false) {
+        statements.add(new SqlStatement(stripParameters(message), 1));
+      } else if (batchSql == null) {
+        batchSql = stripParameters(message);
+      } else if (message.startsWith(BIND_PREFIX)) {
+        batchSize++;
+      } else {
+        // Batches of dynamic SQL log one statement per row
+        statements.add(new SqlStatement(batchSql, 1));
+        batchSql = stripParameters(message);
+      }
+    }
+
+    private static String stripParameters(String message) {
+      int index = message.indexOf('\n');
+      return (index < 0 ? message : message.substring(0, index)).trim();
+    }
+  }
+}
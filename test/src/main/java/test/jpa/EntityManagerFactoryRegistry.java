@@ -0,0 +1,152 @@
+package test.jpa;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps one {@link EntityManagerFactory} per persistence unit for the lifetime of the JVM, so the
+ * bootstrap of the persistence provider is paid once instead of once per test class. The factories
+ * are closed by a shutdown hook.
+ * <p>
+ * The schema that is generated for the first factory of a persistence unit is kept as a
+ * {@link SchemaSnapshot}. Factories that have to be created again for the same persistence unit
+ * restore the snapshot instead of generating the schema.
+ * </p>
+ * <p>
+ * If {@link WorkerIsolation} is enabled, every worker gets a factory of its own that connects to a
+ * database of its own, so tests can run concurrently. The factory of the persistence unit is then
+ * only used as a template: its schema is restored in the databases of the workers.
+ * </p>
+ */
+public final class EntityManagerFactoryRegistry {
+  private static final String DDL_GENERATION = "eclipselink.ddl-generation";
+  private static final String JDBC_URL = "javax.persistence.jdbc.url";
+  private static final String SESSION_NAME = "eclipselink.session-name";
+
+  private static final ConcurrentMap<String, EntityManagerFactory> ENTITY_MANAGER_FACTORIES =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, SchemaSnapshot> SCHEMA_SNAPSHOTS =
+      new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(
+        new Thread(EntityManagerFactoryRegistry::closeAll, "entity-manager-factory-registry"));
+  }
+
+  private EntityManagerFactoryRegistry() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  /**
+   * Returns the open factory of the given persistence unit, or of the current worker if
+   * {@link WorkerIsolation} is enabled. It is created on first use or if it has been closed in the
+   * meantime.
+   */
+  public static EntityManagerFactory get(String persistenceUnitName) {
+    checkNotNull(persistenceUnitName);
+
+    EntityManagerFactory entityManagerFactory =
+        get(persistenceUnitName, () -> create(persistenceUnitName));
+    if (WorkerIsolation.isEnabled()) {
+      String worker = WorkerIsolation.currentWorker();
+      return get(persistenceUnitName + "#" + worker,
+          () -> createForWorker(persistenceUnitName, entityManagerFactory, worker));
+    }
+    return entityManagerFactory;
+  }
+
+  /**
+   * Creates a factory of the given persistence unit that connects to an in-memory H2 database of
+   * its own, for tests that need an empty database or properties that differ from the persistence
+   * unit. The factory is not kept by the registry: the caller should close it, which also drops the
+   * database. The schema is generated as configured in the persistence unit.
+   */
+  public static EntityManagerFactory createPrivate(String persistenceUnitName, String databaseName,
+      Map<String, ?> properties) {
+    checkNotNull(persistenceUnitName);
+    checkNotNull(databaseName);
+    checkNotNull(properties);
+
+    String name = WorkerIsolation.isEnabled()
+        ? databaseName + "-" + WorkerIsolation.currentWorker()
+        : databaseName;
+    Map<String, Object> privateProperties = new HashMap<>(properties);
+    privateProperties.put(JDBC_URL, "jdbc:h2:mem:" + name);
+    privateProperties.putIfAbsent(SESSION_NAME, name);
+    return Persistence.createEntityManagerFactory(persistenceUnitName, privateProperties);
+  }
+
+  /**
+   * Creates a factory of the given persistence unit that connects to an in-memory H2 database of
+   * its own, see {@link #createPrivate(String, String, Map)}.
+   */
+  public static EntityManagerFactory createPrivate(String persistenceUnitName,
+      String databaseName) {
+    return createPrivate(persistenceUnitName, databaseName, Collections.emptyMap());
+  }
+
+  private static EntityManagerFactory get(String key,
+      Supplier<EntityManagerFactory> entityManagerFactorySupplier) {
+    EntityManagerFactory entityManagerFactory = ENTITY_MANAGER_FACTORIES.get(key);
+    if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
+      return entityManagerFactory;
+    }
+    return ENTITY_MANAGER_FACTORIES.compute(key, (name, existing) -> existing != null
+        && existing.isOpen() ? existing : entityManagerFactorySupplier.get());
+  }
+
+  private static EntityManagerFactory createForWorker(String persistenceUnitName,
+      EntityManagerFactory template, String worker) {
+    SchemaSnapshot schemaSnapshot = SCHEMA_SNAPSHOTS.get(persistenceUnitName);
+    if (schemaSnapshot == null) {
+      throw new IllegalStateException(String.format(
+          "Persistence unit [%s] does not use an H2 database, it can not be isolated per worker.",
+          persistenceUnitName));
+    }
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(JDBC_URL,
+        WorkerIsolation.toWorkerUrl((String) template.getProperties().get(JDBC_URL), worker));
+    properties.put(SESSION_NAME, persistenceUnitName + "-" + worker);
+    properties.put(DDL_GENERATION, "none");
+    EntityManagerFactory entityManagerFactory =
+        Persistence.createEntityManagerFactory(persistenceUnitName, properties);
+    schemaSnapshot.restore(entityManagerFactory);
+    return entityManagerFactory;
+  }
+
+  private static EntityManagerFactory create(String persistenceUnitName) {
+    SchemaSnapshot schemaSnapshot = SCHEMA_SNAPSHOTS.get(persistenceUnitName);
+    if (schemaSnapshot != null) {
+      EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(
+          persistenceUnitName, Collections.singletonMap(DDL_GENERATION, "none"));
+      schemaSnapshot.restore(entityManagerFactory);
+      return entityManagerFactory;
+    }
+
+    EntityManagerFactory entityManagerFactory =
+        Persistence.createEntityManagerFactory(persistenceUnitName);
+    schemaSnapshot = SchemaSnapshot.take(entityManagerFactory);
+    if (schemaSnapshot != null) {
+      SCHEMA_SNAPSHOTS.put(persistenceUnitName, schemaSnapshot);
+    }
+    return entityManagerFactory;
+  }
+
+  private static void closeAll() {
+    for (Map.Entry<String, EntityManagerFactory> entry : ENTITY_MANAGER_FACTORIES.entrySet()) {
+      if (entry.getValue().isOpen()) {
+        entry.getValue().close();
+      }
+    }
+    ENTITY_MANAGER_FACTORIES.clear();
+  }
+}
@@ -0,0 +1,84 @@
+package test.jpa;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Script of the schema of an H2 database, taken right after the persistence provider generated it.
+ * Restoring the script is cheaper than letting the provider generate the schema again. Other
+ * databases are not supported, {@link #take(EntityManagerFactory)} returns <code>null</code> for
+ * them.
+ */
+final class SchemaSnapshot {
+  private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+  private final Path script;
+
+  private SchemaSnapshot(Path script) {
+    this.script = script;
+  }
+
+  static SchemaSnapshot take(EntityManagerFactory entityManagerFactory) {
+    return execute(entityManagerFactory, statement -> {
+      if (statement.getConnection().getMetaData().getURL().startsWith(H2_URL_PREFIX) == false) {
+        return null;
+      }
+      Path script = createScriptFile();
+      statement.execute(
+          String.format("SCRIPT NODATA NOPASSWORDS NOSETTINGS TO '%s'", escape(script)));
+      return new SchemaSnapshot(script);
+    });
+  }
+
+  void restore(EntityManagerFactory entityManagerFactory) {
+    execute(entityManagerFactory,
+        statement -> statement.execute(String.format("RUNSCRIPT FROM '%s'", escape(script))));
+  }
+
+  private static Path createScriptFile() {
+    try {
+      Path script = Files.createTempFile("jpa-schema-", ".sql");
+      script.toFile().deleteOnExit();
+      return script;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Exception thrown while creating a schema script.", e);
+    }
+  }
+
+  private static String escape(Path script) {
+    return script.toAbsolutePath().toString().replace("'", "''");
+  }
+
+  private static <T> T execute(EntityManagerFactory entityManagerFactory,
+      StatementCallback<T> statementCallback) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      Connection connection = entityManager.unwrap(Connection.class);
+      T result;
+      try (Statement statement = connection.createStatement()) {
+        result = statementCallback.execute(statement);
+      }
+      entityManager.getTransaction().commit();
+      return result;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Exception thrown while executing a schema script.", e);
+    } finally {
+      if (entityManager.getTransaction().isActive()) {
+        entityManager.getTransaction().rollback();
+      }
+      entityManager.close();
+    }
+  }
+
+  private interface StatementCallback<T> {
+    T execute(Statement statement) throws SQLException;
+  }
+}
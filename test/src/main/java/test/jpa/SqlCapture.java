@@ -0,0 +1,139 @@
+package test.jpa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.sessions.UnitOfWork;
+
+import javax.persistence.EntityManager;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Records the SQL that an {@link EntityManager} issues on the current thread between
+ * {@link #start(EntityManager)} and {@link #close()}, so that tests can assert how many statements
+ * an operation costs, for example with <code>test.matchers.MoreMatchers#issuedStatements</code>.
+ * <p>
+ * The SQL is taken from the session log, which is wrapped on first use and forwards to the
+ * original log, so the configured logging is unchanged. Statements issued by other threads are not
+ * recorded, so captures work while tests run concurrently. Statements that are batched are only
+ * recorded once the batch is executed, flush before closing the capture to include them.
+ * </p>
+ */
+public final class SqlCapture implements AutoCloseable {
+  private final List<SqlStatement> statements = new ArrayList<>();
+  private final Set<String> lobColumnNames;
+  private boolean closed;
+
+  private SqlCapture(Set<String> lobColumnNames) {
+    this.lobColumnNames = lobColumnNames;
+  }
+
+  /**
+   * Starts to record the SQL that the given entity manager issues on the current thread. Captures
+   * can not be nested.
+   */
+  public static SqlCapture start(EntityManager entityManager) {
+    checkNotNull(entityManager);
+    checkState(CapturingSessionLog.isRecording() == false,
+        "SQL is captured on this thread already.");
+
+    AbstractSession session = (AbstractSession) entityManager.unwrap(UnitOfWork.class);
+    // Sessions copy the log of their parent when they are created, so the whole chain is wrapped
+    for (AbstractSession current = session; current != null; current = current.getParent()) {
+      synchronized (current) {
+        if ((current.getSessionLog() instanceof CapturingSessionLog) == false) {
+          current.setSessionLog(new CapturingSessionLog(current.getSessionLog()));
+        }
+      }
+    }
+    SqlCapture sqlCapture = new SqlCapture(findLobColumnNames(session));
+    CapturingSessionLog.startRecording(sqlCapture.statements);
+    return sqlCapture;
+  }
+
+  /**
+   * Stops recording, the recorded statements remain available.
+   */
+  @Override
+  public void close() {
+    if (closed == false) {
+      closed = true;
+      CapturingSessionLog.stopRecording();
+    }
+  }
+
+  /**
+   * Returns the recorded statements in the order they were executed.
+   */
+  public List<SqlStatement> getStatements() {
+    return ImmutableList.copyOf(statements);
+  }
+
+  public int getStatementCount() {
+    return statements.size();
+  }
+
+  /**
+   * Returns whether the given statement selects a column that is mapped to a large object by any
+   * entity of the persistence unit. Columns are told apart by their names only.
+   */
+  public boolean selectsLob(SqlStatement statement) {
+    checkNotNull(statement);
+
+    if (statement.isSelect() == false) {
+      return false;
+    }
+    String sql = statement.getSql();
+    int from = sql.toUpperCase(Locale.ROOT).indexOf(" FROM ");
+    String selectList = sql.substring("SELECT".length(), from < 0 ? sql.length() : from);
+    for (String column : selectList.split(",")) {
+      String name = column.trim();
+      name = name.substring(name.lastIndexOf('.') + 1).replace("\"", "");
+      if (lobColumnNames.contains(name.toUpperCase(Locale.ROOT))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(String.format("[%s] statements", statements.size()));
+    for (SqlStatement statement : statements) {
+      stringBuilder.append(String.format("%n  ")).append(statement);
+    }
+    return stringBuilder.toString();
+  }
+
+  private static Set<String> findLobColumnNames(AbstractSession session) {
+    ImmutableSet.Builder<String> lobColumnNames = ImmutableSet.builder();
+    for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+      for (DatabaseMapping mapping : descriptor.getMappings()) {
+        DatabaseField field = mapping.getField();
+        if (mapping.isDirectToFieldMapping() && field != null && isLob(field)) {
+          lobColumnNames.add(field.getName().toUpperCase(Locale.ROOT));
+        }
+      }
+    }
+    return lobColumnNames.build();
+  }
+
+  private static boolean isLob(DatabaseField field) {
+    String columnDefinition = field.getColumnDefinition();
+    return (columnDefinition != null && columnDefinition.toUpperCase(Locale.ROOT).contains("LOB"))
+        || Blob.class.equals(field.getType()) || Clob.class.equals(field.getType());
+  }
+}
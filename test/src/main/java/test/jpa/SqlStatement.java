@@ -0,0 +1,52 @@
+package test.jpa;
+
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One execution of an SQL statement that was recorded by a {@link SqlCapture}. A statement that was
+ * sent as a JDBC batch is one execution with a batch size of the number of its rows, other
+ * statements have a batch size of one.
+ */
+public final class SqlStatement {
+  private final String sql;
+  private final int batchSize;
+
+  SqlStatement(String sql, int batchSize) {
+    checkArgument(batchSize > 0, "batchSize should be positive but was [%s]", batchSize);
+
+    this.sql = checkNotNull(sql);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Returns the SQL of the statement without its bound parameters, so executions of the same
+   * statement with different parameters return equal SQL.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public boolean isSelect() {
+    return startsWith("SELECT");
+  }
+
+  public boolean isWrite() {
+    return startsWith("INSERT") || startsWith("UPDATE") || startsWith("DELETE");
+  }
+
+  private boolean startsWith(String keyword) {
+    return sql.regionMatches(true, 0, keyword, 0, keyword.length());
+  }
+
+  @Override
+  public String toString() {
+    return batchSize == 1 ? sql : String.format(Locale.ROOT, "%s (batch of %s)", sql, batchSize);
+  }
+}
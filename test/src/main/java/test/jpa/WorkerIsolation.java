@@ -0,0 +1,42 @@
+package test.jpa;
+
+/**
+ * Determines whether every test worker should get its own database. This is enabled by the system
+ * property <code>{@value #ISOLATION_PROPERTY}=worker</code>, as done by the Maven profile
+ * <code>parallel-jpa</code>. A worker is a test thread within a JVM, JVMs forked by surefire are
+ * told apart by the system property <code>{@value #WORKER_PROPERTY}</code>.
+ */
+final class WorkerIsolation {
+  static final String ISOLATION_PROPERTY = "jpa.test.isolation";
+  static final String WORKER_PROPERTY = "jpa.test.worker";
+
+  private static final String WORKER_ISOLATION = "worker";
+
+  private WorkerIsolation() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  static boolean isEnabled() {
+    return WORKER_ISOLATION.equals(System.getProperty(ISOLATION_PROPERTY));
+  }
+
+  /**
+   * Returns the name of the current worker, it is stable for a thread and unique within the build.
+   */
+  static String currentWorker() {
+    return String.format("w%s-%s", System.getProperty(WORKER_PROPERTY, "1"),
+        Thread.currentThread().getId());
+  }
+
+  /**
+   * Appends the name of the worker to the database name in the given JDBC URL, which ends at the
+   * first <code>;</code> if the URL has settings.
+   */
+  static String toWorkerUrl(String url, String worker) {
+    int settings = url.indexOf(';');
+    if (settings < 0) {
+      return url + "-" + worker;
+    }
+    return url.substring(0, settings) + "-" + worker + url.substring(settings);
+  }
+}
@@ -1,9 +1,14 @@
 package test.matchers;
 
+import test.jpa.SqlCapture;
+import test.matchers.more.BudgetMatcher;
 import test.matchers.more.EntityTypeMatcher;
+import test.matchers.more.SqlCaptureMatcher;
 import test.matchers.more.ValidatorMatcher;
 import org.hamcrest.Matcher;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class provides Matchers which are able to check whether valid annotations have been applied
  * on any type of element. In addition, a Matcher can check whether other attributes (such as access
@@ -28,4 +33,62 @@ public class MoreMatchers {
   public static Matcher<Class<?>> validEntityType() {
     return EntityTypeMatcher.validEntityType();
   }
+
+  /**
+   * Returns a matcher that can check whether a JPA Entity class is valid according to the standard
+   * rules for the framework and, in addition, avoids the mappings flagged by
+   * {@link test.validator.PerformanceRules}, such as eagerly fetched lobs or collections. Warnings
+   * fail the match just like errors, the mismatch description tells them apart.
+   */
+  public static Matcher<Class<?>> performantEntityType() {
+    return EntityTypeMatcher.performantEntityType();
+  }
+
+  /**
+   * Returns a matcher that runs an operation repeatedly after warming it up and checks whether it
+   * allocates at most the given number of bytes per run on average, see {@link BudgetMatcher}.
+   */
+  public static BudgetMatcher allocatesAtMost(long bytes) {
+    return BudgetMatcher.allocatesAtMost(bytes);
+  }
+
+  /**
+   * Returns a matcher that runs an operation repeatedly after warming it up and checks whether it
+   * completes within the given duration per run on average, see {@link BudgetMatcher}.
+   */
+  public static BudgetMatcher completesWithin(long duration, TimeUnit unit) {
+    return BudgetMatcher.completesWithin(duration, unit);
+  }
+
+  /**
+   * Returns a matcher that can check whether a {@link SqlCapture} recorded exactly the
+   * given number of statement executions, a JDBC batch counts as one execution.
+   */
+  public static Matcher<SqlCapture> issuedStatements(int count) {
+    return SqlCaptureMatcher.issuedStatements(count);
+  }
+
+  /**
+   * Returns a matcher that can check whether the inserts, updates and deletes recorded by a
+   * {@link SqlCapture} were sent in as few JDBC batches of the given size as possible.
+   */
+  public static Matcher<SqlCapture> issuedWritesInBatchesOf(int batchSize) {
+    return SqlCaptureMatcher.issuedWritesInBatchesOf(batchSize);
+  }
+
+  /**
+   * Returns a matcher that can check whether a {@link SqlCapture} recorded no select more
+   * than once, which is how fetching an association or lazy attribute per entity shows.
+   */
+  public static Matcher<SqlCapture> issuedNoNPlusOneSelects() {
+    return SqlCaptureMatcher.issuedNoNPlusOneSelects();
+  }
+
+  /**
+   * Returns a matcher that can check whether a {@link SqlCapture} recorded no select of a
+   * column that is mapped to a large object.
+   */
+  public static Matcher<SqlCapture> issuedNoLobSelects() {
+    return SqlCaptureMatcher.issuedNoLobSelects();
+  }
 }
@@ -0,0 +1,134 @@
+package test.matchers.more;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs an operation repeatedly on the current thread and matches if it stays within a budget of
+ * allocated bytes or elapsed time per run. The operation is run a number of times to warm up before
+ * it is measured, and the budget applies to the average of the measured runs, so a single slow run
+ * does not fail the match. This guards hot paths against regressions without a full benchmark,
+ * budgets should leave room for the noise of a test run.
+ * <p>
+ * Allocated bytes are measured with <code>com.sun.management.ThreadMXBean</code>, which not every
+ * runtime supports.
+ * </p>
+ */
+public class BudgetMatcher extends BaseMatcher<Runnable> {
+  public static final int DEFAULT_WARM_UP_RUNS = 200;
+  public static final int DEFAULT_MEASURED_RUNS = 200;
+
+  private final boolean allocation;
+  private final long budget;
+  private final int warmUpRuns;
+  private final int measuredRuns;
+  private long measured;
+
+  private BudgetMatcher(boolean allocation, long budget, int warmUpRuns, int measuredRuns) {
+    this.allocation = allocation;
+    this.budget = budget;
+    this.warmUpRuns = warmUpRuns;
+    this.measuredRuns = measuredRuns;
+  }
+
+  /**
+   * Returns a matcher that matches operations that allocate at most the given number of bytes per
+   * run on average.
+   */
+  public static BudgetMatcher allocatesAtMost(long bytes) {
+    checkArgument(bytes >= 0, "bytes should not be negative but was [%s]", bytes);
+
+    return new BudgetMatcher(true, bytes, DEFAULT_WARM_UP_RUNS, DEFAULT_MEASURED_RUNS);
+  }
+
+  /**
+   * Returns a matcher that matches operations that complete within the given duration per run on
+   * average.
+   */
+  public static BudgetMatcher completesWithin(long duration, TimeUnit unit) {
+    checkArgument(duration > 0, "duration should be positive but was [%s]", duration);
+    checkNotNull(unit);
+
+    return new BudgetMatcher(false, unit.toNanos(duration), DEFAULT_WARM_UP_RUNS,
+        DEFAULT_MEASURED_RUNS);
+  }
+
+  /**
+   * Returns a matcher with the same budget that runs the operation the given number of times to
+   * warm up and to measure.
+   */
+  public BudgetMatcher runs(int warmUpRuns, int measuredRuns) {
+    checkArgument(warmUpRuns >= 0, "warmUpRuns should not be negative but was [%s]", warmUpRuns);
+    checkArgument(measuredRuns > 0, "measuredRuns should be positive but was [%s]", measuredRuns);
+
+    return new BudgetMatcher(allocation, budget, warmUpRuns, measuredRuns);
+  }
+
+  @Override
+  public boolean matches(Object obj) {
+    Runnable operation = (Runnable) obj;
+    for (int i = 0; i < warmUpRuns; i++) {
+      operation.run();
+    }
+    measured = allocation ? measureAllocatedBytes(operation) : measureElapsedNanos(operation);
+    return measured <= budget;
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    description.appendText(String.format("operation that %s per run on average over [%s] runs",
+        describe(budget), measuredRuns));
+  }
+
+  @Override
+  public void describeMismatch(Object item, Description description) {
+    description.appendText(String.format("was operation that %s per run on average",
+        describe(measured)));
+  }
+
+  private String describe(long value) {
+    return allocation ? String.format("allocated [%s] bytes", value)
+        : String.format("took [%s] ns", value);
+  }
+
+  private long measureAllocatedBytes(Runnable operation) {
+    com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long start = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < measuredRuns; i++) {
+      operation.run();
+    }
+    return (threadMXBean.getThreadAllocatedBytes(threadId) - start) / measuredRuns;
+  }
+
+  private long measureElapsedNanos(Runnable operation) {
+    long start = System.nanoTime();
+    for (int i = 0; i < measuredRuns; i++) {
+      operation.run();
+    }
+    return (System.nanoTime() - start) / measuredRuns;
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadMXBean() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if ((threadMXBean instanceof com.sun.management.ThreadMXBean) == false) {
+      throw new IllegalStateException("Allocated bytes can not be measured on this runtime.");
+    }
+    com.sun.management.ThreadMXBean allocationMXBean =
+        (com.sun.management.ThreadMXBean) threadMXBean;
+    if (allocationMXBean.isThreadAllocatedMemorySupported() == false) {
+      throw new IllegalStateException("Allocated bytes can not be measured on this runtime.");
+    }
+    if (allocationMXBean.isThreadAllocatedMemoryEnabled() == false) {
+      allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    return allocationMXBean;
+  }
+}
@@ -1,6 +1,7 @@
 package test.matchers.more;
 
 import test.validator.EntityTypeValidator;
+import test.validator.PerformanceRules;
 import test.validator.RuleViolation;
 import test.validator.RuleViolationAppender;
 import org.hamcrest.BaseMatcher;
@@ -10,17 +11,31 @@ import org.hamcrest.Matcher;
 import java.util.List;
 
 public class EntityTypeMatcher extends BaseMatcher<Class<?>> {
+  // Shared so that the results of the performance rules are computed once per class
+  private static final EntityTypeValidator PERFORMANCE_VALIDATOR =
+      new EntityTypeValidator(PerformanceRules.all());
+
   private EntityTypeValidator entityTypeValidator;
+  private boolean performance;
   private List<RuleViolation> ruleViolations;
 
   public EntityTypeMatcher() {
     entityTypeValidator = new EntityTypeValidator();
   }
 
+  private EntityTypeMatcher(EntityTypeValidator entityTypeValidator, boolean performance) {
+    this.entityTypeValidator = entityTypeValidator;
+    this.performance = performance;
+  }
+
   public static Matcher<Class<?>> validEntityType() {
     return new EntityTypeMatcher();
   }
 
+  public static Matcher<Class<?>> performantEntityType() {
+    return new EntityTypeMatcher(PERFORMANCE_VALIDATOR, true);
+  }
+
   @Override
   public boolean matches(Object obj) {
     Class<?> clazz = (Class<?>) obj;
@@ -31,7 +46,9 @@ public class EntityTypeMatcher extends BaseMatcher<Class<?>> {
   @Override
   public void describeTo(Description description) {
     description.appendText(
-        "class that matches standard rules for declaring a JPA entity type according to standards.");
+        "class that matches standard rules for declaring a JPA entity type according to standards");
+    description.appendText(
+        performance ? " and avoids mappings that are known to perform poorly." : ".");
   }
 
   @Override
@@ -0,0 +1,157 @@
+package test.matchers.more;
+
+import test.jpa.SqlCapture;
+import test.jpa.SqlStatement;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Matches the SQL recorded by a {@link SqlCapture} against performance expectations, such as the
+ * number of statements an operation costs.
+ */
+public class SqlCaptureMatcher extends BaseMatcher<SqlCapture> {
+  private enum Kind {
+    STATEMENT_COUNT, WRITE_BATCHES, NO_N_PLUS_ONE_SELECTS, NO_LOB_SELECTS
+  }
+
+  private final Kind kind;
+  private final int expected;
+  private List<String> mismatches;
+
+  private SqlCaptureMatcher(Kind kind, int expected) {
+    this.kind = kind;
+    this.expected = expected;
+  }
+
+  /**
+   * Matches if exactly the given number of statements were executed, a JDBC batch counts as one.
+   */
+  public static Matcher<SqlCapture> issuedStatements(int count) {
+    checkArgument(count >= 0, "count should not be negative but was [%s]", count);
+
+    return new SqlCaptureMatcher(Kind.STATEMENT_COUNT, count);
+  }
+
+  /**
+   * Matches if the rows of every insert, update and delete were sent in as few JDBC batches of at
+   * most the given size as possible.
+   */
+  public static Matcher<SqlCapture> issuedWritesInBatchesOf(int batchSize) {
+    checkArgument(batchSize > 0, "batchSize should be positive but was [%s]", batchSize);
+
+    return new SqlCaptureMatcher(Kind.WRITE_BATCHES, batchSize);
+  }
+
+  /**
+   * Matches if no select was executed more than once, which would be the case if an association
+   * or lazy attribute is fetched with a query per entity.
+   */
+  public static Matcher<SqlCapture> issuedNoNPlusOneSelects() {
+    return new SqlCaptureMatcher(Kind.NO_N_PLUS_ONE_SELECTS, 0);
+  }
+
+  /**
+   * Matches if no select fetched a column that is mapped to a large object.
+   */
+  public static Matcher<SqlCapture> issuedNoLobSelects() {
+    return new SqlCaptureMatcher(Kind.NO_LOB_SELECTS, 0);
+  }
+
+  @Override
+  public boolean matches(Object obj) {
+    SqlCapture sqlCapture = (SqlCapture) obj;
+    mismatches = new ArrayList<>();
+    switch (kind) {
+      case STATEMENT_COUNT:
+        if (sqlCapture.getStatementCount() != expected) {
+          mismatches.add(String.format("issued [%s] statements", sqlCapture.getStatementCount()));
+        }
+        break;
+      case WRITE_BATCHES:
+        for (Map.Entry<String, int[]> entry : countWrites(sqlCapture).entrySet()) {
+          int rows = entry.getValue()[0];
+          int executions = entry.getValue()[1];
+          if (executions > (rows + expected - 1) / expected) {
+            mismatches.add(String.format("wrote [%s] rows in [%s] executions of [%s]", rows,
+                executions, entry.getKey()));
+          }
+        }
+        break;
+      case NO_N_PLUS_ONE_SELECTS:
+        for (Map.Entry<String, Integer> entry : countSelects(sqlCapture).entrySet()) {
+          if (entry.getValue() > 1) {
+            mismatches.add(String.format("selected [%s] times with [%s]", entry.getValue(),
+                entry.getKey()));
+          }
+        }
+        break;
+      case NO_LOB_SELECTS:
+        for (SqlStatement statement : sqlCapture.getStatements()) {
+          if (sqlCapture.selectsLob(statement)) {
+            mismatches.add(String.format("selected a large object with [%s]", statement.getSql()));
+          }
+        }
+        break;
+      default:
+        throw new IllegalStateException(String.format("Unknown kind [%s].", kind));
+    }
+    return mismatches.isEmpty();
+  }
+
+  @Override
+  public void describeTo(Description description) {
+    switch (kind) {
+      case STATEMENT_COUNT:
+        description.appendText(String.format("SQL capture with [%s] statements", expected));
+        break;
+      case WRITE_BATCHES:
+        description.appendText(String.format(
+            "SQL capture with writes in as few batches of [%s] as possible", expected));
+        break;
+      case NO_N_PLUS_ONE_SELECTS:
+        description.appendText("SQL capture without selects that were executed more than once");
+        break;
+      case NO_LOB_SELECTS:
+        description.appendText("SQL capture without selects of large objects");
+        break;
+      default:
+        throw new IllegalStateException(String.format("Unknown kind [%s].", kind));
+    }
+  }
+
+  @Override
+  public void describeMismatch(Object item, Description description) {
+    description.appendText(String.join(", ", mismatches)).appendText(" in ").appendValue(item);
+  }
+
+  private static Map<String, int[]> countWrites(SqlCapture sqlCapture) {
+    // Rows and executions by statement
+    Map<String, int[]> writes = new LinkedHashMap<>();
+    for (SqlStatement statement : sqlCapture.getStatements()) {
+      if (statement.isWrite()) {
+        int[] counts = writes.computeIfAbsent(statement.getSql(), key -> new int[2]);
+        counts[0] += statement.getBatchSize();
+        counts[1]++;
+      }
+    }
+    return writes;
+  }
+
+  private static Map<String, Integer> countSelects(SqlCapture sqlCapture) {
+    Map<String, Integer> selects = new LinkedHashMap<>();
+    for (SqlStatement statement : sqlCapture.getStatements()) {
+      if (statement.isSelect()) {
+        selects.merge(statement.getSql(), 1, Integer::sum);
+      }
+    }
+    return selects;
+  }
+}
@@ -0,0 +1,74 @@
+package test.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * Caches the members of a class that have been resolved by {@link ReflectionTestUtils}, so the
+ * class hierarchy is only searched once per class and field type or annotation. Failed lookups are
+ * not cached, they are expected to fail the test anyway.
+ */
+final class ClassMetadata {
+  private static final ClassValue<ClassMetadata> METADATA = new ClassValue<ClassMetadata>() {
+    @Override
+    protected ClassMetadata computeValue(Class<?> clazz) {
+      return new ClassMetadata(clazz);
+    }
+  };
+
+  private final Class<?> clazz;
+  private final ConcurrentMap<Class<?>, FieldSetter> fieldSetters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<? extends Annotation>, MethodHandle> annotatedMethods =
+      new ConcurrentHashMap<>();
+
+  private ClassMetadata(Class<?> clazz) {
+    this.clazz = clazz;
+  }
+
+  static ClassMetadata of(Class<?> clazz) {
+    return METADATA.get(clazz);
+  }
+
+  FieldSetter getFieldSetter(Class<?> type,
+      BiFunction<Class<?>, Class<?>, FieldSetter> resolver) {
+    // Reading first avoids the lock that computeIfAbsent takes on Java 8 for present values
+    FieldSetter fieldSetter = fieldSetters.get(type);
+    if (fieldSetter == null) {
+      fieldSetter = fieldSetters.computeIfAbsent(type, key -> resolver.apply(clazz, key));
+    }
+    return fieldSetter;
+  }
+
+  MethodHandle getAnnotatedMethod(Class<? extends Annotation> annotation,
+      BiFunction<Class<?>, Class<? extends Annotation>, MethodHandle> resolver) {
+    MethodHandle method = annotatedMethods.get(annotation);
+    if (method == null) {
+      method = annotatedMethods.computeIfAbsent(annotation, key -> resolver.apply(clazz, key));
+    }
+    return method;
+  }
+
+  /**
+   * Method handle that sets a field, typed as <code>(Object, Object)void</code>.
+   */
+  static final class FieldSetter {
+    private final String name;
+    private final MethodHandle handle;
+
+    FieldSetter(String name, MethodHandle handle) {
+      this.name = name;
+      this.handle = handle;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    MethodHandle getHandle() {
+      return handle;
+    }
+  }
+}
@@ -5,8 +5,10 @@ import javax.annotation.PreDestroy;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -15,8 +17,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Note that using reflection is not always considered good practice, even in unit tests. So it is
  * advised to only make use of this class if no other options are available.
+ * <p>
+ * Resolved fields and methods are cached per class in {@link ClassMetadata} and accessed through
+ * method handles, since fixtures tend to call these methods very often.
+ * </p>
  */
 public final class ReflectionTestUtils {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType METHOD_TYPE = MethodType.methodType(void.class, Object.class);
+  private static final MethodHandle FIELD_SET = findFieldSet();
 
   private ReflectionTestUtils() {
     // Private constructor that should prevent this class from getting instantiated
@@ -26,19 +37,56 @@ public final class ReflectionTestUtils {
     checkNotNull(targetObject);
     checkNotNull(type);
 
-    Field field = findRequiredField(targetObject.getClass(), type);
-    makeFieldAccessible(field);
-    setFieldValue(targetObject, field, value);
+    ClassMetadata.FieldSetter fieldSetter = ClassMetadata.of(targetObject.getClass())
+        .getFieldSetter(type, ReflectionTestUtils::createFieldSetter);
+    setFieldValue(targetObject, fieldSetter, value);
   }
 
   private static void invokeAnnotatedMethod(Object targetObject,
       Class<? extends Annotation> annotation) {
 
-    Method method = findRequiredMethod(targetObject.getClass(), annotation);
-    makeMethodAccessible(method);
+    MethodHandle method = ClassMetadata.of(targetObject.getClass())
+        .getAnnotatedMethod(annotation, ReflectionTestUtils::createMethodHandle);
     invokeMethod(targetObject, method);
   }
 
+  private static ClassMetadata.FieldSetter createFieldSetter(Class<?> clazz, Class<?> type) {
+    Field field = findRequiredField(clazz, type);
+    makeFieldAccessible(field);
+    MethodHandle setter;
+    try {
+      setter = LOOKUP.unreflectSetter(field);
+      if (Modifier.isStatic(field.getModifiers())) {
+        // Setters of static fields take no target, the target object is dropped to match
+        setter = MethodHandles.dropArguments(setter, 0, Object.class);
+      }
+    } catch (IllegalAccessException e) {
+      // Final fields can not be set through a method handle on every JVM, reflection always works
+      setter = FIELD_SET.bindTo(field);
+    }
+    return new ClassMetadata.FieldSetter(field.getName(), setter.asType(SETTER_TYPE));
+  }
+
+  private static MethodHandle createMethodHandle(Class<?> clazz,
+      Class<? extends Annotation> annotation) {
+    Method method = findRequiredMethod(clazz, annotation);
+    makeMethodAccessible(method);
+    try {
+      return LOOKUP.unreflect(method).asType(METHOD_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(
+          String.format("Could not access method with name [%s].", method.getName()), e);
+    }
+  }
+
+  private static MethodHandle findFieldSet() {
+    try {
+      return LOOKUP.findVirtual(Field.class, "set", SETTER_TYPE);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalStateException("Could not find method Field.set(Object, Object).", e);
+    }
+  }
+
   private static Method findRequiredMethod(Class<? extends Object> clazz,
       Class<? extends Annotation> annotationClazz) {
     Method method = findMethod(clazz, annotationClazz);
@@ -82,15 +130,12 @@ public final class ReflectionTestUtils {
     }
   }
 
-  private static void invokeMethod(Object targetObject, Method postConstructMethod) {
+  private static void invokeMethod(Object targetObject, MethodHandle postConstructMethod) {
     try {
-      postConstructMethod.invoke(targetObject);
-    } catch (IllegalAccessException | IllegalArgumentException e) {
-      throw new IllegalStateException("Exception thrown while Invoking method.", e);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
+      postConstructMethod.invokeExact(targetObject);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
       throw new IllegalStateException("Exception thrown while Invoking method.", e);
     }
   }
@@ -157,13 +202,16 @@ public final class ReflectionTestUtils {
     field.setAccessible(true);
   }
 
-  private static void setFieldValue(Object targetObject, Field field, Object value) {
+  private static void setFieldValue(Object targetObject, ClassMetadata.FieldSetter fieldSetter,
+      Object value) {
     try {
-      field.set(targetObject, value);
-    } catch (IllegalArgumentException | IllegalAccessException e) {
+      fieldSetter.getHandle().invokeExact(targetObject, value);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
       throw new IllegalStateException(String.format(
           "Exception thrown while setting value [%s] of field with name [%s] on Object with type [%s].",
-          value, field.getName(), targetObject.getClass().getName()), e);
+          value, fieldSetter.getName(), targetObject.getClass().getName()), e);
     }
   }
 
@@ -0,0 +1,16 @@
+package test.validator;
+
+import java.util.List;
+
+/**
+ * A rule that an {@link EntityTypeValidator} checks entity classes against, in addition to the
+ * rules for declaring a JPA entity type. Rules should be stateless, their results are cached per
+ * class.
+ */
+public interface EntityRule {
+
+  /**
+   * Adds a violation to the given list for every way in which the given class violates this rule.
+   */
+  void validate(Class<?> entityClass, List<RuleViolation> ruleViolations);
+}
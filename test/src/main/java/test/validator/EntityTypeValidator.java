@@ -1,5 +1,6 @@
 package test.validator;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.reflect.Invokable;
 
@@ -11,22 +12,67 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.List;
 
+/**
+ * Validates entity classes against the rules for declaring a JPA entity type. The result for a
+ * class is computed once and shared, so instances are thread-safe and cheap to create.
+ * <p>
+ * Additional rules, such as the {@link PerformanceRules}, can be passed on creation. Their results
+ * are computed once per validator instance, so validators with additional rules are best shared.
+ * </p>
+ */
 public class EntityTypeValidator {
   private static final String ID_FIELD_NAME = "id";
   private static final String GET_ID_METHOD_NAME = "getId";
 
-  private List<RuleViolation> ruleViolations = Lists.newArrayListWithExpectedSize(10);
+  private static final ClassValue<List<RuleViolation>> RULE_VIOLATIONS =
+      new ClassValue<List<RuleViolation>>() {
+        @Override
+        protected List<RuleViolation> computeValue(Class<?> entityClass) {
+          List<RuleViolation> ruleViolations = Lists.newArrayListWithExpectedSize(10);
+          validateClass(entityClass, ruleViolations);
+          validateConstructor(entityClass, ruleViolations);
+          validateIdField(entityClass, ruleViolations);
+          validateIdGetter(entityClass, ruleViolations);
+          return ImmutableList.copyOf(ruleViolations);
+        }
+      };
 
-  public List<RuleViolation> validate(Class<?> entityClass) {
-    validateClass(entityClass);
-    validateConstructor(entityClass);
-    validateIdField(entityClass);
-    validateIdGetter(entityClass);
+  private final ClassValue<List<RuleViolation>> ruleViolations;
+
+  public EntityTypeValidator() {
+    this(ImmutableList.of());
+  }
+
+  /**
+   * Creates a validator that checks the given rules in addition to the rules for declaring a JPA
+   * entity type.
+   */
+  public EntityTypeValidator(List<EntityRule> additionalRules) {
+    ImmutableList<EntityRule> rules = ImmutableList.copyOf(additionalRules);
+    if (rules.isEmpty()) {
+      this.ruleViolations = RULE_VIOLATIONS;
+      return;
+    }
+    this.ruleViolations = new ClassValue<List<RuleViolation>>() {
+      @Override
+      protected List<RuleViolation> computeValue(Class<?> entityClass) {
+        List<RuleViolation> ruleViolations = Lists.newArrayList(RULE_VIOLATIONS.get(entityClass));
+        for (EntityRule rule : rules) {
+          rule.validate(entityClass, ruleViolations);
+        }
+        return ImmutableList.copyOf(ruleViolations);
+      }
+    };
+  }
 
-    return ruleViolations;
+  /**
+   * Returns the rules that are violated by the given class, the returned list is immutable.
+   */
+  public List<RuleViolation> validate(Class<?> entityClass) {
+    return ruleViolations.get(entityClass);
   }
 
-  private void validateClass(Class<?> entityClass) {
+  private static void validateClass(Class<?> entityClass, List<RuleViolation> ruleViolations) {
     Entity entityAnnotation = entityClass.getAnnotation(Entity.class);
     if (entityAnnotation == null) {
       ruleViolations.add(new RuleViolation("annotation [%s] should be applied to class declaration",
@@ -34,14 +80,15 @@ public class EntityTypeValidator {
     }
   }
 
-  private void validateConstructor(Class<?> entityClass) {
+  private static void validateConstructor(Class<?> entityClass,
+      List<RuleViolation> ruleViolations) {
     if (hasPublicOrProtectedNoArgConstructor(entityClass) == false) {
       ruleViolations.add(
           new RuleViolation("entity should have a public or protected zero-argument constructor"));
     }
   }
 
-  private boolean hasPublicOrProtectedNoArgConstructor(Class<?> entityClass) {
+  private static boolean hasPublicOrProtectedNoArgConstructor(Class<?> entityClass) {
     Constructor<?>[] constructors = entityClass.getDeclaredConstructors();
     for (Constructor<?> constructor : constructors) {
       if (isPublicOrProtectedNoArgConstructor(constructor)) {
@@ -69,11 +116,11 @@ public class EntityTypeValidator {
     return Invokable.from(constructor).isProtected();
   }
 
-  private void validateIdField(Class<?> entityClass) {
+  private static void validateIdField(Class<?> entityClass, List<RuleViolation> ruleViolations) {
     Field idField = getFieldByName(entityClass, ID_FIELD_NAME);
     if (idField != null) {
-      validateIdType(idField);
-      validateIdAnnotations(idField);
+      validateIdType(idField, ruleViolations);
+      validateIdAnnotations(idField, ruleViolations);
     } else {
       ruleViolations
           .add(new RuleViolation("entity should have a field named [%s].", ID_FIELD_NAME));
@@ -94,13 +141,13 @@ public class EntityTypeValidator {
     return null;
   }
 
-  private void validateIdType(Field idField) {
+  private static void validateIdType(Field idField, List<RuleViolation> ruleViolations) {
     if (idField.getType().equals(Long.class) == false) {
       ruleViolations.add(new RuleViolation("field id should have type [%s]", Long.class.getName()));
     }
   }
 
-  private void validateIdAnnotations(Field idField) {
+  private static void validateIdAnnotations(Field idField, List<RuleViolation> ruleViolations) {
     Annotation[] annotations = idField.getDeclaredAnnotations();
     boolean idAnnotation = false;
     boolean generatedValueAnnotation = false;
@@ -123,7 +170,7 @@ public class EntityTypeValidator {
     }
   }
 
-  private void validateIdGetter(Class<?> entityClass) {
+  private static void validateIdGetter(Class<?> entityClass, List<RuleViolation> ruleViolations) {
     try {
       entityClass.getMethod(GET_ID_METHOD_NAME);
     } catch (@SuppressWarnings("unused") NoSuchMethodException e) {
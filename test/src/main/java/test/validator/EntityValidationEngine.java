@@ -0,0 +1,135 @@
+package test.validator;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.persistence.Entity;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Validates all entity classes of a module at once. The class files in the output directory of the
+ * module are loaded and validated in parallel on a fork-join pool, the results are collected in
+ * one {@link EntityValidationReport}.
+ */
+public class EntityValidationEngine {
+  private static final String CLASS_FILE_SUFFIX = ".class";
+
+  private final ForkJoinPool forkJoinPool;
+  private final ClassLoader classLoader;
+  private final EntityTypeValidator entityTypeValidator;
+
+  public EntityValidationEngine() {
+    this(ForkJoinPool.commonPool(), Thread.currentThread().getContextClassLoader());
+  }
+
+  public EntityValidationEngine(ForkJoinPool forkJoinPool, ClassLoader classLoader) {
+    this(forkJoinPool, classLoader, new EntityTypeValidator());
+  }
+
+  /**
+   * Creates an engine that validates with the given validator, for example one that checks
+   * {@link PerformanceRules} as well.
+   */
+  public EntityValidationEngine(ForkJoinPool forkJoinPool, ClassLoader classLoader,
+      EntityTypeValidator entityTypeValidator) {
+    this.forkJoinPool = checkNotNull(forkJoinPool);
+    this.classLoader = checkNotNull(classLoader);
+    this.entityTypeValidator = checkNotNull(entityTypeValidator);
+  }
+
+  /**
+   * Validates all classes annotated with {@link Entity} that are found in the given directory, for
+   * example <code>target/classes</code>. The classes are loaded with the class loader of this
+   * engine, so the directory should be on its class path.
+   */
+  public EntityValidationReport validate(Path classesDirectory) {
+    checkNotNull(classesDirectory);
+    checkArgument(Files.isDirectory(classesDirectory), "[%s] should be a directory",
+        classesDirectory);
+
+    List<Callable<EntityValidationReport.Entry>> tasks = new ArrayList<>();
+    for (String className : findClassNames(classesDirectory)) {
+      tasks.add(() -> validate(className));
+    }
+    return invokeAll(tasks);
+  }
+
+  /**
+   * Validates the given classes, whether or not they are annotated with {@link Entity}. A class
+   * that is given more than once is validated and reported once.
+   */
+  public EntityValidationReport validate(Collection<Class<?>> entityClasses) {
+    checkNotNull(entityClasses);
+
+    List<Callable<EntityValidationReport.Entry>> tasks = new ArrayList<>();
+    for (Class<?> entityClass : new LinkedHashSet<>(entityClasses)) {
+      tasks.add(() -> new EntityValidationReport.Entry(entityClass.getName(),
+          entityTypeValidator.validate(entityClass)));
+    }
+    return invokeAll(tasks);
+  }
+
+  private EntityValidationReport.Entry validate(String className) {
+    Class<?> clazz;
+    try {
+      clazz = Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      return new EntityValidationReport.Entry(className, ImmutableList
+          .of(new RuleViolation("class could not be loaded because of [%s]", e.toString())));
+    }
+    if (clazz.isAnnotationPresent(Entity.class) == false) {
+      return null;
+    }
+    return new EntityValidationReport.Entry(className, entityTypeValidator.validate(clazz));
+  }
+
+  private EntityValidationReport invokeAll(List<Callable<EntityValidationReport.Entry>> tasks) {
+    List<EntityValidationReport.Entry> entries = new ArrayList<>(tasks.size());
+    for (Future<EntityValidationReport.Entry> future : forkJoinPool.invokeAll(tasks)) {
+      try {
+        EntityValidationReport.Entry entry = future.get();
+        if (entry != null) {
+          entries.add(entry);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while validating entity classes.", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Exception thrown while validating entity classes.",
+            e.getCause());
+      }
+    }
+    return new EntityValidationReport(entries);
+  }
+
+  private static List<String> findClassNames(Path classesDirectory) {
+    try (Stream<Path> paths = Files.walk(classesDirectory)) {
+      return paths.filter(Files::isRegularFile)
+          .map(path -> classesDirectory.relativize(path).toString())
+          .filter(name -> name.endsWith(CLASS_FILE_SUFFIX))
+          .filter(name -> name.endsWith("module-info.class") == false)
+          .filter(name -> name.endsWith("package-info.class") == false)
+          .map(name -> name.substring(0, name.length() - CLASS_FILE_SUFFIX.length())
+              .replace(classesDirectory.getFileSystem().getSeparator(), "."))
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Exception thrown while scanning directory [%s].", classesDirectory), e);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package test.validator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable result of validating a number of entity classes with an {@link EntityValidationEngine}.
+ */
+public final class EntityValidationReport {
+  private final int validatedClassCount;
+  private final ImmutableSortedMap<String, List<RuleViolation>> ruleViolations;
+
+  EntityValidationReport(Collection<Entry> entries) {
+    ImmutableSortedMap.Builder<String, List<RuleViolation>> builder =
+        ImmutableSortedMap.naturalOrder();
+    for (Entry entry : entries) {
+      if (entry.ruleViolations.isEmpty() == false) {
+        builder.put(entry.className, entry.ruleViolations);
+      }
+    }
+    this.validatedClassCount = entries.size();
+    this.ruleViolations = builder.build();
+  }
+
+  public int getValidatedClassCount() {
+    return validatedClassCount;
+  }
+
+  public boolean isValid() {
+    return ruleViolations.isEmpty();
+  }
+
+  /**
+   * Returns the violated rules by class name, only for the classes that violate any rule.
+   */
+  public Map<String, List<RuleViolation>> getRuleViolations() {
+    return ruleViolations;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(String.format("validated [%s] entity classes", validatedClassCount));
+    for (Map.Entry<String, List<RuleViolation>> entry : ruleViolations.entrySet()) {
+      stringBuilder.append(String.format("%n[%s] violated the following rules: ", entry.getKey()));
+      RuleViolationAppender.append(stringBuilder, entry.getValue());
+    }
+    return stringBuilder.toString();
+  }
+
+  static final class Entry {
+    private final String className;
+    private final List<RuleViolation> ruleViolations;
+
+    Entry(String className, List<RuleViolation> ruleViolations) {
+      this.className = checkNotNull(className);
+      this.ruleViolations = ImmutableList.copyOf(ruleViolations);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package test.validator;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.persistence.Basic;
+import javax.persistence.ElementCollection;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rules that flag mapping choices which perform poorly under load, to be checked by an
+ * {@link EntityTypeValidator} in addition to the rules for declaring a JPA entity type. Violations
+ * of these rules have severity {@link Severity#WARNING}. Only persistent fields are inspected, the
+ * rules assume field access like the rest of this project.
+ */
+public final class PerformanceRules {
+  private static final int MIN_ALLOCATION_SIZE = 2;
+
+  private PerformanceRules() {
+    // Private constructor that should prevent this class from getting instantiated
+  }
+
+  /**
+   * Returns all performance rules.
+   */
+  public static List<EntityRule> all() {
+    return ImmutableList.of(lazyLobs(), allocatedSequences(), lazyCollections(),
+        indexedForeignKeys());
+  }
+
+  /**
+   * Flags <code>@Lob</code> attributes that are fetched eagerly, which drags the large object along
+   * whenever the entity is loaded.
+   */
+  public static EntityRule lazyLobs() {
+    return (entityClass, ruleViolations) -> {
+      for (Field field : getPersistentFields(entityClass)) {
+        Basic basic = field.getAnnotation(Basic.class);
+        if (field.isAnnotationPresent(Lob.class)
+            && (basic == null || basic.fetch() == FetchType.EAGER)) {
+          ruleViolations.add(new RuleViolation(Severity.WARNING,
+              "lob field [%s] should be fetched lazily", field.getName()));
+        }
+      }
+    };
+  }
+
+  /**
+   * Flags ids that are generated from a sequence without a declared allocation size of more than
+   * one, which costs a round trip to the sequence for every insert.
+   */
+  public static EntityRule allocatedSequences() {
+    return (entityClass, ruleViolations) -> {
+      for (Field field : getPersistentFields(entityClass)) {
+        GeneratedValue generatedValue = field.getAnnotation(GeneratedValue.class);
+        if (generatedValue == null || generatedValue.strategy() != GenerationType.SEQUENCE) {
+          continue;
+        }
+        SequenceGenerator sequenceGenerator =
+            findSequenceGenerator(entityClass, generatedValue.generator());
+        if (sequenceGenerator == null) {
+          ruleViolations.add(new RuleViolation(Severity.WARNING,
+              "sequence generated field [%s] should declare annotation [%s] with an allocation"
+                  + " size",
+              field.getName(), SequenceGenerator.class.getName()));
+        } else if (sequenceGenerator.allocationSize() < MIN_ALLOCATION_SIZE) {
+          ruleViolations.add(new RuleViolation(Severity.WARNING,
+              "sequence generator [%s] should allocate at least [%s] values but allocated [%s]",
+              sequenceGenerator.name(), MIN_ALLOCATION_SIZE, sequenceGenerator.allocationSize()));
+        }
+      }
+    };
+  }
+
+  /**
+   * Flags collection attributes that are fetched eagerly, which loads the whole collection, often
+   * with a query per entity, whenever the entity is loaded.
+   */
+  public static EntityRule lazyCollections() {
+    return (entityClass, ruleViolations) -> {
+      for (Field field : getPersistentFields(entityClass)) {
+        if (isEager(field.getAnnotation(OneToMany.class))
+            || isEager(field.getAnnotation(ManyToMany.class))
+            || isEager(field.getAnnotation(ElementCollection.class))) {
+          ruleViolations.add(new RuleViolation(Severity.WARNING,
+              "collection field [%s] should be fetched lazily", field.getName()));
+        }
+      }
+    };
+  }
+
+  /**
+   * Flags the foreign key columns of owned to-one relationships that are not the leading column of
+   * an index or unique constraint declared by the <code>@Table</code> annotation, which makes
+   * joins and deletes of the referenced entity scan the table.
+   */
+  public static EntityRule indexedForeignKeys() {
+    return (entityClass, ruleViolations) -> {
+      List<String> indexedColumns = getLeadingIndexColumns(entityClass);
+      for (Field field : getPersistentFields(entityClass)) {
+        OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+        boolean owned = field.isAnnotationPresent(ManyToOne.class)
+            || (oneToOne != null && oneToOne.mappedBy().isEmpty());
+        if (owned == false) {
+          continue;
+        }
+        String column = getJoinColumnName(field);
+        if (indexedColumns.contains(column) == false) {
+          ruleViolations.add(new RuleViolation(Severity.WARNING,
+              "foreign key column [%s] of field [%s] should be indexed", column, field.getName()));
+        }
+      }
+    };
+  }
+
+  private static boolean isEager(OneToMany oneToMany) {
+    return oneToMany != null && oneToMany.fetch() == FetchType.EAGER;
+  }
+
+  private static boolean isEager(ManyToMany manyToMany) {
+    return manyToMany != null && manyToMany.fetch() == FetchType.EAGER;
+  }
+
+  private static boolean isEager(ElementCollection elementCollection) {
+    return elementCollection != null && elementCollection.fetch() == FetchType.EAGER;
+  }
+
+  private static SequenceGenerator findSequenceGenerator(Class<?> entityClass, String name) {
+    if (name.isEmpty()) {
+      return null;
+    }
+    for (Class<?> searchType = entityClass; searchType != null && searchType != Object.class;
+        searchType = searchType.getSuperclass()) {
+      SequenceGenerator sequenceGenerator = searchType.getAnnotation(SequenceGenerator.class);
+      if (sequenceGenerator != null && name.equals(sequenceGenerator.name())) {
+        return sequenceGenerator;
+      }
+      for (Field field : searchType.getDeclaredFields()) {
+        sequenceGenerator = field.getAnnotation(SequenceGenerator.class);
+        if (sequenceGenerator != null && name.equals(sequenceGenerator.name())) {
+          return sequenceGenerator;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String getJoinColumnName(Field field) {
+    JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+    if (joinColumn != null && joinColumn.name().isEmpty() == false) {
+      return joinColumn.name().toLowerCase(Locale.ROOT);
+    }
+    // Default name of a join column, entities reference each other by their id fields
+    return (field.getName() + "_id").toLowerCase(Locale.ROOT);
+  }
+
+  private static List<String> getLeadingIndexColumns(Class<?> entityClass) {
+    List<String> columns = new ArrayList<>();
+    Table table = entityClass.getAnnotation(Table.class);
+    if (table != null) {
+      for (Index index : table.indexes()) {
+        columns.add(index.columnList().split(",")[0].trim().split("\\s+")[0]
+            .toLowerCase(Locale.ROOT));
+      }
+      for (UniqueConstraint uniqueConstraint : table.uniqueConstraints()) {
+        if (uniqueConstraint.columnNames().length > 0) {
+          columns.add(uniqueConstraint.columnNames()[0].toLowerCase(Locale.ROOT));
+        }
+      }
+    }
+    return columns;
+  }
+
+  private static List<Field> getPersistentFields(Class<?> entityClass) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> searchType = entityClass; searchType != null && searchType != Object.class;
+        searchType = searchType.getSuperclass()) {
+      for (Field field : searchType.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        // Fields added by weaving are not mapped, whether or not they are transient
+        if (Modifier.isStatic(modifiers) == false && Modifier.isTransient(modifiers) == false
+            && field.isSynthetic() == false
+            && field.getName().startsWith("_persistence") == false) {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+}
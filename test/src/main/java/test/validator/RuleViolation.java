@@ -1,14 +1,29 @@
 package test.validator;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 public class RuleViolation {
-  private String messageTemplate;
-  private Object[] messageArgs;
+  private final Severity severity;
+  private final String messageTemplate;
+  private final Object[] messageArgs;
 
+  /**
+   * Creates a violation of severity {@link Severity#ERROR}.
+   */
   public RuleViolation(String messageTemplate, Object... messageArgs) {
+    this(Severity.ERROR, messageTemplate, messageArgs);
+  }
+
+  public RuleViolation(Severity severity, String messageTemplate, Object... messageArgs) {
+    this.severity = checkNotNull(severity);
     this.messageTemplate = messageTemplate;
     this.messageArgs = messageArgs;
   }
 
+  public Severity getSeverity() {
+    return severity;
+  }
+
   public String getMessage() {
     return String.format(messageTemplate, messageArgs);
   }
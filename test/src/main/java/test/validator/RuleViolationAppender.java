@@ -2,6 +2,7 @@ package test.validator;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 
 public final class RuleViolationAppender {
 
@@ -18,6 +19,10 @@ public final class RuleViolationAppender {
 
   private static void append(StringBuilder stringBuilder, RuleViolation ruleViolation,
       boolean isLast) {
+    if (ruleViolation.getSeverity() != Severity.ERROR) {
+      stringBuilder.append(ruleViolation.getSeverity().name().toLowerCase(Locale.ROOT))
+          .append(": ");
+    }
     stringBuilder.append(ruleViolation.getMessage());
     if (isLast) {
       stringBuilder.append(".");
@@ -0,0 +1,15 @@
+package test.validator;
+
+/**
+ * How severe a {@link RuleViolation} is.
+ */
+public enum Severity {
+  /**
+   * The class is no valid entity type, or is mapped in a way that does not work.
+   */
+  ERROR,
+  /**
+   * The class is a valid entity type, but is mapped in a way that is known to perform poorly.
+   */
+  WARNING
+}
@@ -0,0 +1,59 @@
+package test.jpa;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SchemaSnapshotTest {
+  private static final String PERSISTENCE_UNIT_NAME = "snapshotTestPU";
+
+  private EntityManagerFactory template;
+  private EntityManagerFactory worker;
+
+  @After
+  public void tearDown() {
+    if (worker != null) {
+      worker.close();
+    }
+    if (template != null) {
+      template.close();
+    }
+  }
+
+  @Test
+  public void testRestoresSchemaInDatabaseOfWorker() {
+    template = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME);
+    // System under test (SUT)
+    SchemaSnapshot schemaSnapshot = SchemaSnapshot.take(template);
+    assertThat(schemaSnapshot, is(notNullValue()));
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:snapshot-worker");
+    properties.put("eclipselink.session-name", PERSISTENCE_UNIT_NAME + "-worker");
+    properties.put("eclipselink.ddl-generation", "none");
+    worker = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties);
+    schemaSnapshot.restore(worker);
+
+    EntityManager entityManager = worker.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.persist(new SnapshotEntity(1L, "restored"));
+      entityManager.getTransaction().commit();
+      entityManager.clear();
+
+      assertThat(entityManager.find(SnapshotEntity.class, 1L).getName(), is("restored"));
+    } finally {
+      entityManager.close();
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package test.jpa;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Entity of the <code>snapshotTestPU</code>, whose table is part of the schema of a
+ * {@link SchemaSnapshot}.
+ */
+@Entity
+@Table(name = "snapshot_entity")
+public class SnapshotEntity {
+
+  @Id
+  private long id;
+
+  private String name;
+
+  protected SnapshotEntity() {
+    // Required by JPA
+  }
+
+  public SnapshotEntity(long id, String name) {
+    this.id = id;
+    this.name = name;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,24 @@
+package test.jpa;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class WorkerIsolationTest {
+
+  @Test
+  public void testAppendsWorkerToUrlWithoutSettings() {
+    String workerUrl = WorkerIsolation.toWorkerUrl("jdbc:h2:mem:test", "w1-7");
+
+    assertThat(workerUrl, is("jdbc:h2:mem:test-w1-7"));
+  }
+
+  @Test
+  public void testAppendsWorkerToDatabaseNameOfUrlWithSettings() {
+    String workerUrl =
+        WorkerIsolation.toWorkerUrl("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1;MODE=MySQL", "w1-7");
+
+    assertThat(workerUrl, is("jdbc:h2:mem:test-w1-7;DB_CLOSE_DELAY=-1;MODE=MySQL"));
+  }
+}
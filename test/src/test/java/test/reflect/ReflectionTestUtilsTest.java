@@ -0,0 +1,54 @@
+package test.reflect;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ReflectionTestUtilsTest {
+
+  @After
+  public void tearDown() {
+    Target.name = null;
+  }
+
+  @Test
+  public void testSetsInstanceField() {
+    Target target = new Target();
+
+    ReflectionTestUtils.setField(target, Long.class, 42L);
+
+    assertThat(target.id, is(42L));
+  }
+
+  @Test
+  public void testSetsStaticField() {
+    ReflectionTestUtils.setField(new Target(), String.class, "static");
+
+    assertThat(Target.name, is("static"));
+  }
+
+  @Test
+  public void testSetsFieldOfSuperclass() {
+    SubTarget subTarget = new SubTarget();
+
+    ReflectionTestUtils.setField(subTarget, Long.class, 7L);
+
+    assertThat(((Target) subTarget).id, is(7L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsMissingField() {
+    ReflectionTestUtils.setField(new Target(), Integer.class, 1);
+  }
+
+  private static class Target {
+    private static String name;
+
+    private Long id;
+  }
+
+  private static class SubTarget extends Target {
+  }
+}